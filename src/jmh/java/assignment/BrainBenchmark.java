@@ -0,0 +1,39 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * LameBrain.nextMove on fixed boards, with a fresh brain (every call enumerates placements) and with a
+ * reused brain (calls after the first hit its PlacementCache).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrainBenchmark {
+    @Param({"empty", "mid", "high"})
+    public String fixture;
+
+    private TetrisBoard board;
+    private LameBrain cached;
+
+    @Setup
+    public void setUp() {
+        board = Fixtures.board(fixture);
+        cached = new LameBrain();
+    }
+
+    @Benchmark
+    public Board.Action lameNextMove() {
+        return new LameBrain().nextMove(board);
+    }
+
+    @Benchmark
+    public Board.Action lameNextMoveCached() {
+        return cached.nextMove(board);
+    }
+}
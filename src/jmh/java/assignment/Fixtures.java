@@ -0,0 +1,90 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * Fixed boards for the benchmarks, the same on every run so results compare across commits.
+ *
+ * "empty" is a fresh game, "mid" and "high" are seeded LameBrain games stopped after 15 and 30 pieces,
+ * each with its next piece at spawn.
+ */
+final class Fixtures {
+    static final int WIDTH = JTetris.WIDTH;
+    static final int HEIGHT = JTetris.HEIGHT;
+    static final int TOP_SPACE = JTetris.TOP_SPACE;
+
+    private Fixtures() {}
+
+    /**
+     * Board by fixture name
+     */
+    static TetrisBoard board(String name) {
+        switch(name) {
+            case "empty": return played(0);
+            case "mid": return played(15);
+            case "high": return played(30);
+            default: throw new IllegalArgumentException("Unknown fixture: " + name);
+        }
+    }
+
+    /**
+     * Board after LameBrain places pieces pieces, from the first seed whose game lasts that long
+     */
+    static TetrisBoard played(int pieces) {
+        for(long seed = 1; ; seed++) {
+            Game game = new Game(WIDTH, HEIGHT, TOP_SPACE, PieceSource.uniform(seed));
+            Brain brain = new LameBrain();
+            while(!game.isOver() && game.getPiecesPlaced() < pieces)
+                game.step(brain.nextMove(game.getBoard()));
+            if(!game.isOver())
+                return new TetrisBoard(game.getBoard());
+        }
+    }
+
+    /**
+     * Board whose bottom lines rows are full except the last column, with nothing on top
+     */
+    static TetrisBoard wells(int lines) {
+        Piece[][] grid = new Piece[HEIGHT + TOP_SPACE][WIDTH];
+        Piece filler = new TetrisPiece(Piece.PieceType.SQUARE);
+        for(int y = 0; y < lines; y++)
+            for(int x = 0; x < WIDTH - 1; x++)
+                grid[y][x] = filler;
+        return new TetrisBoard(grid);
+    }
+
+    /**
+     * width x height board (plus TOP_SPACE) whose bottom stack rows are randomly filled, each with at least one
+     * gap so none clears, and a T at the spawn position
+     */
+    static TetrisBoard stacked(int width, int height, int stack, long seed) {
+        Random random = new Random(seed);
+        Piece[][] grid = new Piece[height + TOP_SPACE][width];
+        Piece filler = new TetrisPiece(Piece.PieceType.SQUARE);
+        for(int y = 0; y < stack; y++) {
+            int gap = random.nextInt(width);
+            for(int x = 0; x < width; x++)
+                if(x != gap && random.nextInt(4) != 0)
+                    grid[y][x] = filler;
+        }
+        TetrisBoard board = new TetrisBoard(grid);
+        Piece t = new TetrisPiece(Piece.PieceType.T);
+        board.nextPiece(t, new Point(width / 2 - t.getWidth() / 2, height));
+        return board;
+    }
+
+    /**
+     * Vertical stick and the x that drops it into the well of wells()
+     */
+    static Piece wellStick() {
+        return new TetrisPiece(Piece.PieceType.STICK, 3);
+    }
+
+    static int wellStickX() {
+        int column = Integer.MAX_VALUE;
+        for(Point p : wellStick().getBody())
+            column = Math.min(column, p.x);
+        return WIDTH - 1 - column;
+    }
+}
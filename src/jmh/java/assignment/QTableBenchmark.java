@@ -0,0 +1,59 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * QTable lookups and training on a seeded default-size table.
+ *
+ * trainTable is one epoch over a replay memory filled to replaySize by seeded training games; it updates Q
+ * values in place but its cost depends only on the memory size, which stays fixed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QTableBenchmark {
+    @Param({"empty", "mid", "high"})
+    public String fixture;
+
+    private QTable table;
+    private TetrisBoard board;
+    private QState state;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TrainingConfig config = TrainingConfig.forBoard(Fixtures.WIDTH, Fixtures.HEIGHT, 2, 3, Fixtures.TOP_SPACE);
+        config.seed = 42;
+        table = new QTable(config);
+        while(table.getMemorySize() < config.replaySize)
+            table.trainOneGame();
+        board = Fixtures.board(fixture);
+        state = table.encode(board);
+    }
+
+    @Benchmark
+    public QState encode() {
+        return table.encode(board);
+    }
+
+    @Benchmark
+    public double heuristicReward() {
+        return state.heuristicReward(board);
+    }
+
+    @Benchmark
+    public QAction getMaxAction() {
+        return state.getMaxAction(board);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public QTable trainTable() {
+        table.trainTable(1);
+        return table;
+    }
+}
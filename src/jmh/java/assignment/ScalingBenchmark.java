@@ -0,0 +1,85 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-move costs as the board grows, on boards with the same 8-row stack: move, rotate and lock should stay
+ * flat from 10x20 to 200x1000.
+ *
+ * Moves and rotations come in pairs that undo each other so the board never needs resetting. Locks reset a
+ * scratch board with copyFrom first, which copies the stack (so it grows with the width, not the height);
+ * subtract the copyFrom benchmark to get the lock alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+    static final int STACK = 8;
+
+    @Param({"10x20", "40x200", "100x400", "200x1000"})
+    public String size;
+
+    private TetrisBoard board;
+    private TetrisBoard moving;
+    private TetrisBoard scratch;
+    private FastBoard fast;
+    private FastBoard fastScratch;
+    private Piece piece;
+    private FastBoard.Shape shape;
+    private int x;
+
+    @Setup
+    public void setUp() {
+        int width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+        int height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+        board = Fixtures.stacked(width, height, STACK, 1);
+        moving = new TetrisBoard(board);
+        scratch = new TetrisBoard(board);
+        fast = new FastBoard(board.getWidth(), board.getHeight());
+        fast.load(board);
+        fastScratch = new FastBoard(board.getWidth(), board.getHeight());
+        piece = board.getCurrentPiece();
+        shape = FastBoard.SHAPES[piece.getType().ordinal()][piece.getRotationIndex()];
+        x = board.getCurrentPiecePosition().x;
+    }
+
+    @Benchmark
+    public Board.Result shift() {
+        moving.move(Board.Action.LEFT);
+        return moving.move(Board.Action.RIGHT);
+    }
+
+    @Benchmark
+    public Board.Result rotate() {
+        moving.move(Board.Action.CLOCKWISE);
+        return moving.move(Board.Action.COUNTERCLOCKWISE);
+    }
+
+    @Benchmark
+    public TetrisBoard copyFrom() {
+        scratch.copyFrom(board);
+        return scratch;
+    }
+
+    @Benchmark
+    public boolean lock() {
+        scratch.copyFrom(board);
+        return scratch.dropPiece(piece, x);
+    }
+
+    @Benchmark
+    public boolean fastLock() {
+        fastScratch.copyFrom(fast);
+        return fastScratch.drop(shape, x);
+    }
+
+    @Benchmark
+    public boolean equalBoards() {
+        return board.equals(scratch);
+    }
+}
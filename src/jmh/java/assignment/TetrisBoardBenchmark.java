@@ -0,0 +1,102 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Hot paths of TetrisBoard on fixed boards.
+ *
+ * move mutates its board, so each call first restores a scratch copy with copyFrom; subtract the copyFrom
+ * benchmark to get the move alone. clearRows is measured through a drop that completes lines rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TetrisBoardBenchmark {
+    @Param({"empty", "mid", "high"})
+    public String fixture;
+
+    private TetrisBoard board;
+    private TetrisBoard scratch;
+    private TetrisBoard same;
+    private Piece piece;
+    private int x;
+
+    @Setup
+    public void setUp() {
+        board = Fixtures.board(fixture);
+        scratch = new TetrisBoard(board);
+        same = new TetrisBoard(board);
+        piece = board.getCurrentPiece();
+        x = board.getCurrentPiecePosition().x;
+    }
+
+    @Benchmark
+    public TetrisBoard copyFrom() {
+        scratch.copyFrom(board);
+        return scratch;
+    }
+
+    /**
+     * Action for move and testMove, kept out of the other benchmarks' parameters
+     */
+    @State(Scope.Thread)
+    public static class Actions {
+        @Param({"LEFT", "DOWN", "CLOCKWISE", "DROP"})
+        public Board.Action action;
+    }
+
+    @Benchmark
+    public Board.Result move(Actions a) {
+        scratch.copyFrom(board);
+        return scratch.move(a.action);
+    }
+
+    @Benchmark
+    public Board testMove(Actions a) {
+        return board.testMove(a.action);
+    }
+
+    @Benchmark
+    public int dropHeight() {
+        return board.dropHeight(piece, x);
+    }
+
+    @Benchmark
+    public boolean equalBoards() {
+        return board.equals(same);
+    }
+
+    /**
+     * Drop into a well that clears 1 to 4 rows
+     */
+    @State(Scope.Thread)
+    public static class Wells {
+        @Param({"1", "2", "3", "4"})
+        public int lines;
+
+        TetrisBoard board;
+        TetrisBoard scratch;
+        Piece stick;
+        int x;
+
+        @Setup
+        public void setUp() {
+            board = Fixtures.wells(lines);
+            scratch = new TetrisBoard(board);
+            stick = Fixtures.wellStick();
+            x = Fixtures.wellStickX();
+        }
+    }
+
+    @Benchmark
+    public int clearRows(Wells w) {
+        w.scratch.copyFrom(w.board);
+        w.scratch.dropPiece(w.stick, w.x);
+        return w.scratch.getRowsCleared();
+    }
+}
@@ -0,0 +1,115 @@
+package assignment;
+
+import java.util.*;
+
+/**
+ * Brain with a predictable per-move latency: it deepens a DepthLimitedSearch one placement at a time
+ * until the time budget runs out or maxDepth is reached, and plays the result of the deepest search
+ * that finished. Depth 1 (greedy) always finishes, so there is always a move.
+ *
+ * e.g. {@code new AnytimeBrain(new ExpectimaxBrain(), 4, 10_000_000L)}
+ */
+public class AnytimeBrain implements Brain, Planner {
+    public static final long DEFAULT_BUDGET_NANOS = 10_000_000L; // 10ms per piece
+
+    private final DepthLimitedSearch search;
+    private final int maxDepth;
+    private final long defaultBudgetNanos;
+
+    // stats
+    private long decisions;
+    private long cutoffs;
+    private long depthSum;
+    private long maxLatencyNanos;
+
+    // queue for nextMove
+    private List<Board.Action> loadedMoves;
+    private int moveIdx;
+
+    /**
+     * @param search search to deepen
+     * @param maxDepth deepest search to try, at most search.maxDepth()
+     * @param defaultBudgetNanos budget used by nextMove(Board)
+     */
+    public AnytimeBrain(DepthLimitedSearch search, int maxDepth, long defaultBudgetNanos) {
+        if(maxDepth > search.maxDepth())
+            throw new IllegalArgumentException("maxDepth over the search's " + search.maxDepth() + ": " + maxDepth);
+        this.search = search;
+        this.maxDepth = Math.max(1, maxDepth);
+        this.defaultBudgetNanos = defaultBudgetNanos;
+        loadedMoves = new ArrayList<>();
+        moveIdx = 0;
+    }
+
+    public Board.Action nextMove(Board currentBoard) {
+        return nextMove(currentBoard, defaultBudgetNanos);
+    }
+
+    /**
+     * Plays the queued moves for the current piece, planning a new placement within budgetNanos when they run out
+     */
+    public Board.Action nextMove(Board currentBoard, long budgetNanos) {
+        if(currentBoard.getCurrentPiece() == null)
+            return Board.Action.NOTHING;
+        if(moveIdx >= loadedMoves.size()) {
+            loadedMoves = plan(currentBoard, budgetNanos);
+            moveIdx = 0;
+        }
+        return loadedMoves.get(moveIdx++);
+    }
+
+    public List<Board.Action> plan(Board board) {
+        return plan(board, defaultBudgetNanos);
+    }
+
+    /**
+     * Iteratively deepen the search until budgetNanos has passed
+     * @return fewest moves placing the piece (ending with DROP)
+     */
+    public List<Board.Action> plan(Board board, long budgetNanos) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        List<Board.Action> best = search.search(board, 1, Long.MAX_VALUE);
+        int reached = 1;
+        while(reached < maxDepth && System.nanoTime() < deadline) {
+            List<Board.Action> moves = search.search(board, reached + 1, deadline);
+            if(moves == null)
+                break;
+            best = moves;
+            reached++;
+        }
+
+        best = Finesse.forBoard(board).shorten(board, best);
+        decisions++;
+        if(reached < maxDepth)
+            cutoffs++;
+        depthSum+=reached;
+        maxLatencyNanos = Math.max(maxLatencyNanos, System.nanoTime() - start);
+        return best;
+    }
+
+    /**
+     * Number of placements planned
+     */
+    public long getDecisions() { return decisions; }
+
+    /**
+     * Number of decisions where the deadline stopped the search before maxDepth
+     */
+    public long getCutoffs() { return cutoffs; }
+
+    /**
+     * Fraction of decisions cut short by the deadline
+     */
+    public double getCutoffRate() { return decisions == 0 ? 0 : cutoffs / (double) decisions; }
+
+    /**
+     * Average depth of the searches that were played
+     */
+    public double getMeanDepth() { return decisions == 0 ? 0 : depthSum / (double) decisions; }
+
+    /**
+     * Slowest decision so far, including the greedy search that always runs
+     */
+    public long getMaxLatencyNanos() { return maxLatencyNanos; }
+}
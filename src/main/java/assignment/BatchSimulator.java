@@ -0,0 +1,314 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Supplier;
+
+/**
+ * Plays many seeded games of a Brain in parallel and summarizes the score distribution, for comparing brains.
+ *
+ * Usage: java assignment.BatchSimulator [--brain lame|beam|expectimax|anytime|mcts|q[:table]] [--games N]
+ *            [--threads N] [--seed N] [--precision P] [--min-games N] [--pieces uniform|bag|history] [--pregenerate N]
+ *
+ * Game k reseeds the piece source with seed + k, so brains run with the same seed see the same pieces.
+ * Each worker thread builds its own brain, piece source and Game once and reuses them for every game it claims,
+ * and results go into lock-free accumulators, so workers never wait on each other. With a precision, the run
+ * stops early once the 95% confidence interval of the mean score is within precision * mean.
+ * --pregenerate draws each game's first N pieces into a byte[] when the worker reseeds for it, before game.play,
+ * so games no longer than N never touch the RNG while they run.
+ */
+public class BatchSimulator {
+    public static final int DEFAULT_MIN_GAMES = 30; // fewest games before the confidence interval is trusted
+    private static final double Z_95 = 1.96;
+
+    private final Supplier<Brain> brains;
+    private final Supplier<PieceSource> pieces;
+    private final int width;
+    private final int height;
+    private final int threads;
+    private final ExecutorService pool;
+
+    /**
+     * Running totals of a batch, updated by every worker without locks
+     */
+    public static class Stats {
+        private final LongAdder games = new LongAdder();
+        private final LongAdder pieces = new LongAdder(); // also the score sum, the score is pieces placed
+        private final LongAdder lines = new LongAdder();
+        private final DoubleAdder squares = new DoubleAdder(); // sum of squared scores
+        private final Histogram scores = new Histogram();
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+
+        void record(int score, int linesCleared) {
+            pieces.add(score);
+            lines.add(linesCleared);
+            squares.add((double) score * score);
+            scores.record(score);
+            games.increment(); // last, so a game is never counted before its score
+        }
+
+        public long getGames() { return games.sum(); }
+
+        public double getMean() {
+            long n = games.sum();
+            return n == 0 ? 0 : pieces.sum() / (double) n;
+        }
+
+        public double getStdDev() {
+            long n = games.sum();
+            if(n < 2)
+                return 0;
+            double mean = pieces.sum() / (double) n;
+            return Math.sqrt(Math.max(0, (squares.sum() - n * mean * mean) / (n - 1)));
+        }
+
+        /**
+         * Half width of the 95% confidence interval of the mean
+         */
+        public double getHalfWidth() {
+            long n = games.sum();
+            return n < 2 ? Double.POSITIVE_INFINITY : Z_95 * getStdDev() / Math.sqrt(n);
+        }
+
+        /**
+         * Percentile of the scores, within a few percent
+         * @param p percentile in [0, 100]
+         */
+        public long percentile(double p) { return scores.percentile(p); }
+
+        public double getLinesPerGame() {
+            long n = games.sum();
+            return n == 0 ? 0 : lines.sum() / (double) n;
+        }
+
+        /**
+         * Pieces placed per second of wall time, over every worker
+         */
+        public double getPiecesPerSecond() {
+            long end = endNanos == 0 ? System.nanoTime() : endNanos;
+            return pieces.sum() / Math.max(1e-9, (end - startNanos) / 1e9);
+        }
+
+        public double getSeconds() {
+            return ((endNanos == 0 ? System.nanoTime() : endNanos) - startNanos) / 1e9;
+        }
+
+        /**
+         * True once there are enough games and the confidence interval is within precision * mean
+         */
+        boolean converged(double precision, int minGames) {
+            return games.sum() >= Math.max(2, minGames) && getHalfWidth() <= precision * getMean();
+        }
+
+        @Override
+        public String toString() {
+            return "games: " + getGames() + ", mean: " + getMean() + " +/- " + getHalfWidth() + " (95%), sd: " + getStdDev()
+                + ", median: " + percentile(50) + ", p10: " + percentile(10) + ", p90: " + percentile(90) + ", max: " + percentile(100)
+                + ", lines/game: " + getLinesPerGame() + ", pieces/s: " + getPiecesPerSecond() + ", seconds: " + getSeconds();
+        }
+    }
+
+    /**
+     * Lock-free histogram of non-negative values: exact below 64, then 32 buckets per power of two (~3% wide)
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int LINEAR = 2 * SUB; // values below this get their own bucket
+        private final AtomicLongArray counts = new AtomicLongArray(LINEAR + (63 - SUB_BITS) * SUB);
+
+        void record(long value) {
+            counts.incrementAndGet(bucket(Math.max(0, value)));
+        }
+
+        static int bucket(long value) {
+            if(value < LINEAR)
+                return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return LINEAR + (shift - 1) * SUB + (int) (value >> shift) - SUB;
+        }
+
+        /**
+         * Smallest value that lands in bucket i
+         */
+        static long lowest(int i) {
+            if(i < LINEAR)
+                return i;
+            int shift = (i - LINEAR) / SUB + 1;
+            return (long) ((i - LINEAR) % SUB + SUB) << shift;
+        }
+
+        /**
+         * Nearest-rank percentile, reported as the lowest value of its bucket
+         */
+        long percentile(double p) {
+            long total = 0;
+            for(int i = 0; i < counts.length(); i++)
+                total+=counts.get(i);
+            if(total == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            long seen = 0;
+            for(int i = 0; i < counts.length(); i++) {
+                seen+=counts.get(i);
+                if(seen >= rank)
+                    return lowest(i);
+            }
+            return lowest(counts.length() - 1);
+        }
+    }
+
+    /**
+     * Simulator for the standard board size with uniformly random pieces
+     * @param brains makes one brain per worker thread (brains aren't thread safe)
+     * @param threads worker threads
+     */
+    public BatchSimulator(Supplier<Brain> brains, int threads) {
+        this(brains, () -> PieceSource.uniform(0), JTetris.WIDTH, JTetris.HEIGHT, threads);
+    }
+
+    /**
+     * @param pieces makes one piece source per worker thread, reseeded for every game
+     * @param width board width
+     * @param height board height (not including top space)
+     */
+    public BatchSimulator(Supplier<Brain> brains, Supplier<PieceSource> pieces, int width, int height, int threads) {
+        this.brains = brains;
+        this.pieces = pieces;
+        this.width = width;
+        this.height = height;
+        this.threads = Math.max(1, threads);
+        AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "simulator-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Play up to maxGames games and wait for them to finish
+     * @param seed seed of the first game (game k uses seed + k)
+     * @param precision stop once the 95% confidence interval of the mean is within precision * mean, 0 to play every game
+     * @param minGames fewest games to play before stopping early
+     */
+    public Stats run(long maxGames, long seed, double precision, int minGames) {
+        Stats stats = new Stats();
+        AtomicLong next = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Future<?>> workers = new ArrayList<>();
+        for(int w = 0; w < threads; w++)
+            workers.add(pool.submit(() -> work(stats, next, stop, maxGames, seed, precision, minGames)));
+        for(Future<?> f : workers) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                stop.set(true);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                stop.set(true);
+                System.err.println("Simulation worker failed: " + e.getCause());
+            }
+        }
+        stats.endNanos = System.nanoTime();
+        return stats;
+    }
+
+    /**
+     * One worker: claim game indices and play them until they run out or the run converges
+     */
+    private void work(Stats stats, AtomicLong next, AtomicBoolean stop, long maxGames, long seed, double precision, int minGames) {
+        Brain brain = brains.get();
+        PieceSource source = pieces.get();
+        Game game = new Game(width, height, JTetris.TOP_SPACE, source);
+        long k;
+        while(!stop.get() && (k = next.getAndIncrement()) < maxGames) {
+            source.reseed(seed + k);
+            game.reset();
+            game.play(brain);
+            stats.record(game.getPiecesPlaced(), game.getLinesCleared());
+            if(precision > 0 && stats.converged(precision, minGames))
+                stop.set(true);
+        }
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Brain factory for a --brain name
+     */
+    static Supplier<Brain> brainFor(String name) {
+        String[] parts = name.split(":", 2);
+        switch(parts[0]) {
+            case "lame": return LameBrain::new;
+            case "beam": return BeamSearchBrain::new;
+            case "expectimax": return ExpectimaxBrain::new;
+            case "anytime": return () -> new AnytimeBrain(new ExpectimaxBrain(), 4, AnytimeBrain.DEFAULT_BUDGET_NANOS);
+            case "mcts": return MonteCarloBrain::new;
+            case "q": // every worker loads its own copy of the table
+                String path = parts.length > 1 ? parts[1] : JBrainTetris.FILEPATH;
+                return () -> new QLearningBrain(JTetris.WIDTH, JTetris.HEIGHT, 2, 3, JTetris.TOP_SPACE, path);
+            default: throw new IllegalArgumentException("Unknown brain: " + name);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        String brain = "lame";
+        long games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        double precision = 0;
+        int minGames = DEFAULT_MIN_GAMES;
+        String pieceSource = "uniform";
+        int pregenerate = 0;
+        Supplier<Brain> brains;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                boolean hasValue = i + 1 < args.length;
+                if(arg.equals("--brain") && hasValue)
+                    brain = args[++i];
+                else if(arg.equals("--games") && hasValue)
+                    games = Long.parseLong(args[++i]);
+                else if(arg.equals("--threads") && hasValue)
+                    threads = Integer.parseInt(args[++i]);
+                else if(arg.equals("--seed") && hasValue)
+                    seed = Long.parseLong(args[++i]);
+                else if(arg.equals("--precision") && hasValue)
+                    precision = Double.parseDouble(args[++i]);
+                else if(arg.equals("--min-games") && hasValue)
+                    minGames = Integer.parseInt(args[++i]);
+                else if(arg.equals("--pieces") && hasValue)
+                    pieceSource = args[++i];
+                else if(arg.equals("--pregenerate") && hasValue)
+                    pregenerate = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException("Unrecognized argument: " + arg);
+            }
+            brains = brainFor(brain);
+            PieceSource.forName(pieceSource, 0); // validate name
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java assignment.BatchSimulator [--brain lame|beam|expectimax|anytime|mcts|q[:table]] [--games N]"
+                + " [--threads N] [--seed N] [--precision P] [--min-games N] [--pieces uniform|bag|history] [--pregenerate N]");
+            System.exit(2);
+            return;
+        }
+
+        String name = pieceSource;
+        int length = pregenerate;
+        Supplier<PieceSource> pieces = () -> length > 0 ? PieceSource.pregenerated(PieceSource.forName(name, 0), length) : PieceSource.forName(name, 0);
+        BatchSimulator simulator = new BatchSimulator(brains, pieces, JTetris.WIDTH, JTetris.HEIGHT, threads);
+        System.out.println("Simulating up to " + games + " games of " + brain + " on " + threads + " threads, " + name + " pieces");
+        System.out.println(simulator.run(games, seed, precision, minGames));
+        simulator.close();
+    }
+}
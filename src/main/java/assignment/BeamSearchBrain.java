@@ -0,0 +1,207 @@
+package assignment;
+
+import java.util.*;
+
+/**
+ * Brain that looks several placements ahead with a beam search.
+ *
+ * The current piece's placements are scored with BoardHeuristics, and the best beamWidth of them
+ * are searched further: since the next pieces are unknown, each deeper level averages over all
+ * 7 piece types, again expanding only the best beamWidth placements of each. Leaves are scored
+ * with BoardHeuristics. Values are cached in a Zobrist-keyed transposition table, so boards reached
+ * by placing the same pieces in a different order are only searched once.
+ *
+ * Searching stops at a per-move time budget and the greedy choice is played instead, so the brain
+ * can drive JBrainTetris in real time. Wrap it in an AnytimeBrain to deepen until the budget runs out.
+ */
+public class BeamSearchBrain implements Brain, Planner, DepthLimitedSearch {
+    public static final int DEFAULT_BEAM_WIDTH = 4;
+    public static final int DEFAULT_DEPTH = 2; // placements searched, including the current piece
+    public static final long DEFAULT_BUDGET_NANOS = 20_000_000L; // 20ms per piece
+    public static final int MAX_DEPTH = Zobrist.MAX_SALT; // remaining depth salts the transposition keys
+    public static final int MAX_TRANSPOSITIONS = 1 << 18; // table is cleared once it grows past this
+    private static final double GAME_OVER_VALUE = -1e6;
+
+    private final int beamWidth;
+    private final int depth;
+    private final long budgetNanos;
+
+    private Zobrist zobrist;
+    private final Map<Long, Double> transpositions;
+    private long lookups;
+    private long hits;
+    private long timeouts;
+
+    // search state for the current decision
+    private long deadline;
+    private boolean timedOut;
+
+    // queue for nextMove
+    private List<Board.Action> loadedMoves;
+    private int moveIdx;
+
+    public BeamSearchBrain() {
+        this(DEFAULT_BEAM_WIDTH, DEFAULT_DEPTH, DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * @param beamWidth placements expanded per node
+     * @param depth number of placements to look ahead (1 is greedy on the current piece), at most MAX_DEPTH
+     * @param budgetNanos time allowed to plan each piece when nextMove isn't given a budget
+     */
+    public BeamSearchBrain(int beamWidth, int depth, long budgetNanos) {
+        if(depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth over " + MAX_DEPTH + ": " + depth);
+        this.beamWidth = Math.max(1, beamWidth);
+        this.depth = Math.max(1, depth);
+        this.budgetNanos = budgetNanos;
+        transpositions = new HashMap<>();
+        loadedMoves = new ArrayList<>();
+        moveIdx = 0;
+    }
+
+    public Board.Action nextMove(Board currentBoard) {
+        return nextMove(currentBoard, budgetNanos);
+    }
+
+    /**
+     * Plays the queued moves for the current piece, planning a new placement within budgetNanos when they run out
+     */
+    public Board.Action nextMove(Board currentBoard, long budgetNanos) {
+        if(currentBoard.getCurrentPiece() == null)
+            return Board.Action.NOTHING;
+        if(moveIdx >= loadedMoves.size()) {
+            loadedMoves = plan(currentBoard, budgetNanos);
+            moveIdx = 0;
+        }
+        return loadedMoves.get(moveIdx++);
+    }
+
+    /**
+     * Search for the best placement of the current piece, falling back on the greedy choice if the budget runs out
+     * @return fewest moves placing the piece (ending with DROP)
+     */
+    public List<Board.Action> plan(Board board) {
+        return plan(board, budgetNanos);
+    }
+
+    /**
+     * plan with budgetNanos instead of the brain's own budget
+     */
+    public List<Board.Action> plan(Board board, long budgetNanos) {
+        List<Board.Action> moves = search(board, depth, System.nanoTime() + budgetNanos);
+        if(moves == null) {
+            timeouts++;
+            moves = search(board, 1, Long.MAX_VALUE);
+        }
+        return Finesse.forBoard(board).shorten(board, moves);
+    }
+
+    public List<Board.Action> search(Board board, int depth, long deadline) {
+        if(depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth over " + MAX_DEPTH + ": " + depth);
+        if(zobrist == null || !zobrist.fits(board))
+            zobrist = new Zobrist(board.getWidth(), board.getHeight(), 0x5EED);
+        if(transpositions.size() > MAX_TRANSPOSITIONS)
+            transpositions.clear();
+        this.deadline = deadline;
+        timedOut = false;
+
+        List<Scored> candidates = beam(PlacementEnumerator.enumerate(board, zobrist));
+        if(candidates.isEmpty())
+            return Collections.singletonList(Board.Action.DROP);
+
+        List<Board.Action> best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(Scored c : candidates) {
+            double value = depth <= 1 ? c.value : expectedValue(c.placement.board, depth - 1);
+            if(timedOut)
+                return null;
+            if(value > bestValue) {
+                bestValue = value;
+                best = c.placement.moves;
+            }
+        }
+        return best;
+    }
+
+    public int maxDepth() { return MAX_DEPTH; }
+
+    /**
+     * Average over the 7 possible next pieces of the best value reachable from board
+     * @param remaining placements left to search (>= 1)
+     */
+    private double expectedValue(Board board, int remaining) {
+        if(BoardHeuristics.isGameOver(board))
+            return GAME_OVER_VALUE;
+        long key = zobrist.salt(zobrist.key(board), remaining);
+        lookups++;
+        Double cached = transpositions.get(key);
+        if(cached != null) {
+            hits++;
+            return cached;
+        }
+        if(System.nanoTime() > deadline) {
+            timedOut = true;
+            return 0;
+        }
+
+        int spawnY = board.getHeight() - JTetris.TOP_SPACE;
+        double sum = 0;
+        for(Piece p : PieceSource.PIECES) {
+            if(timedOut || System.nanoTime() > deadline) {
+                timedOut = true;
+                break;
+            }
+            Board spawned = PlacementEnumerator.spawn(board, p, spawnY);
+            if(spawned == null) {
+                sum+=GAME_OVER_VALUE;
+                continue;
+            }
+            double best = GAME_OVER_VALUE;
+            for(Scored c : beam(PlacementEnumerator.enumerate(spawned, zobrist))) {
+                double value = remaining == 1 ? c.value : expectedValue(c.placement.board, remaining - 1);
+                best = Math.max(best, value);
+                if(timedOut)
+                    break;
+            }
+            sum+=best;
+        }
+        if(timedOut)
+            return 0; // partial, don't cache
+        double value = sum / PieceSource.NUM_TYPES;
+        transpositions.put(key, value);
+        return value;
+    }
+
+    /**
+     * Score placements with the heuristic and keep the best beamWidth, best first
+     */
+    private List<Scored> beam(List<PlacementEnumerator.Placement> placements) {
+        List<Scored> scored = new ArrayList<>(placements.size());
+        for(PlacementEnumerator.Placement p : placements)
+            scored.add(new Scored(p, BoardHeuristics.isGameOver(p.board) ? GAME_OVER_VALUE : BoardHeuristics.reward(p.board)));
+        scored.sort((a, b) -> Double.compare(b.value, a.value));
+        return scored.subList(0, Math.min(beamWidth, scored.size()));
+    }
+
+    /**
+     * Fraction of transposition table lookups that were hits
+     */
+    public double getTranspositionHitRate() { return lookups == 0 ? 0 : hits / (double) lookups; }
+
+    /**
+     * Number of decisions where the time budget cut the search short
+     */
+    public long getTimeouts() { return timeouts; }
+
+    private static class Scored {
+        final PlacementEnumerator.Placement placement;
+        final double value;
+
+        Scored(PlacementEnumerator.Placement placement, double value) {
+            this.placement = placement;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package assignment;
+
+/**
+ * Board evaluation shared by the QLearning reward and the search brains
+ */
+final class BoardHeuristics {
+    private BoardHeuristics() {}
+
+    /**
+     * Use heuristic to evaluate how good a board is.
+     * Referenced online Tetris scoring techniques for base metric ideas.
+     * Customized weights and metrics for own implementation using trial and error (no GA).
+     */
+    public static double reward(Board b) {
+        return reward(b.getMaxHeight(), b.getHeight(), aggregateHeight(b), completeLine(b), holes(b), bumpiness(b));
+    }
+
+    /**
+     * Same as reward(Board), from already computed metrics (lets other board representations share the weights)
+     */
+    public static double reward(int maxHeight, int height, int aggregateHeight, int completeLines, int holes, int bumpiness) {
+        double aggregateHeightWeight = -2.0;
+        double completeLineWeight = 3.0;
+        double holesWeight = -1.5;
+        double bumpinessWeight = -0.75;
+        if(maxHeight > (3 * height) / 4) { // panic mode
+            aggregateHeightWeight*=2;
+            completeLineWeight*=2;
+        }
+        // doesn't need to be perfect, just an estimate for how good board is doing so it gets some sense of whats going on
+        // also allows for longer games which means more diverse experience replay
+        return aggregateHeightWeight * aggregateHeight + completeLineWeight * completeLines + holesWeight * holes + bumpinessWeight * bumpiness;
+    }
+
+    /**
+     * True if the stack reaches into the top space, where the game ends (the search brains score it as a loss)
+     */
+    public static boolean isGameOver(Board b) {
+        return isGameOver(b.getMaxHeight(), b.getHeight());
+    }
+
+    /**
+     * Same as isGameOver(Board), for other board representations
+     * @param height board height including the top space
+     */
+    public static boolean isGameOver(int maxHeight, int height) {
+        return maxHeight > height - JTetris.TOP_SPACE;
+    }
+
+    /**
+     * Find total height of all columns (adds back cleared rows for consistency in row clears)
+     */
+    public static int aggregateHeight(Board b) {
+        int sum = 0;
+        for(int x = 0; x < b.getWidth(); x++)
+            sum+=b.getColumnHeight(x);
+        return sum + b.getRowsCleared() * b.getWidth();
+    }
+
+    /**
+     * Find number of rows cleared with the previous move
+     */
+    public static int completeLine(Board b) {
+        return b.getRowsCleared();
+    }
+
+    /**
+     * Find number of holes in board
+     */
+    public static int holes(Board b) {
+        int count = 0;
+        for(int x = 0; x < b.getWidth(); x++)
+            for(int y = 0; y < b.getColumnHeight(x); y++)
+                if(b.getGrid(x, y) == null)
+                    count++;
+        return count;
+    }
+
+    /**
+     * Find bumpiness in board (absolute difference in consecutive column heights) 
+     */
+    public static int bumpiness(Board b) {
+        int sum = 0;
+        for(int x = 0; x < b.getWidth()-1; x++)
+            sum+=Math.abs(b.getColumnHeight(x) - b.getColumnHeight(x+1)); // or squared
+        return sum;
+    }
+}
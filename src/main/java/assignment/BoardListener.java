@@ -0,0 +1,35 @@
+package assignment;
+
+import java.awt.Point;
+
+/**
+ * Receives a TetrisBoard's changes as they happen, so renderers, metrics and feature trackers can update
+ * from the exact cells that changed instead of rescanning the board. Every method defaults to doing nothing.
+ *
+ * Events fire on the thread that moves the board, after the board has changed. The arguments are the
+ * board's own objects: read them during the call but don't keep or modify them.
+ */
+public interface BoardListener {
+    /**
+     * piece locked with its lower-left corner at position, its cells are position + each point of its body.
+     * Fires before any rows it completed are cleared
+     */
+    default void pieceLocked(TetrisBoard board, Piece piece, Point position) {}
+
+    /**
+     * count rows were cleared by the last lock
+     * @param rows indices of the cleared rows before the clear, bottom up, in rows[0, count)
+     */
+    default void rowsCleared(TetrisBoard board, int[] rows, int count) {}
+
+    /**
+     * piece became the current piece at position
+     */
+    default void pieceSpawned(TetrisBoard board, Piece piece, Point position) {}
+
+    /**
+     * The game on this board is over: piece couldn't spawn at position, or (with Game) it locked above the
+     * playable rows
+     */
+    default void toppedOut(TetrisBoard board, Piece piece, Point position) {}
+}
@@ -0,0 +1,258 @@
+package assignment;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JComponent;
+
+/**
+ * Draws a board for JTetris from a cached image of its locked stack. Locks and clears (heard as BoardListener
+ * events) mark rows dirty and only those rows are redrawn into the image; the active piece is drawn over the
+ * image on every paint. dirtyArea gives the part of the component that changed since it was last asked, so the
+ * component only has to repaint that.
+ *
+ * The board can change between dirtyArea and the paint it schedules, so what the image is missing and what the
+ * screen is missing are tracked apart: paint brings the whole image up to date but only counts as shown what
+ * fell inside its clip, and anything it drew outside the clip goes into the next dirtyArea.
+ *
+ * Boards that aren't TetrisBoards don't send events, so their whole stack is redrawn on every paint.
+ * Used on the event dispatch thread, like the component.
+ */
+final class BoardRenderer implements BoardListener {
+    private final JComponent component;
+    private final int topSpace;
+
+    private Board board;
+    private boolean listening; // board sends us events
+    private BufferedImage stack; // border, spacer line and locked blocks, sized to the component
+
+    // stack rows [dirtyLow, dirtyHigh) changed since they were last drawn into the image
+    private int dirtyLow;
+    private int dirtyHigh;
+    private boolean allDirty = true;
+    private int lockedTop; // board's max height when the last piece locked, before any clear
+
+    // stack rows [staleLow, staleHigh) changed since dirtyArea last handed them out for repainting
+    private int staleLow;
+    private int staleHigh;
+    private boolean allStale = true;
+    private Rectangle staleArea; // other pixels paint left wrong on screen, null if none
+
+    // component pixels the active piece covered when last painted, if there was one
+    private final Rectangle drawnPiece = new Rectangle();
+    private boolean pieceDrawn;
+
+    /**
+     * @param topSpace rows at the top of the board above the spacer line
+     */
+    BoardRenderer(JComponent component, int topSpace) {
+        this.component = component;
+        this.topSpace = topSpace;
+    }
+
+    /**
+     * Draw b from now on, redrawing its whole stack on the next paint
+     */
+    void setBoard(Board b) {
+        if(b == board)
+            return;
+        if(listening)
+            ((TetrisBoard) board).removeListener(this);
+        board = b;
+        listening = b instanceof TetrisBoard;
+        if(listening)
+            ((TetrisBoard) b).addListener(this);
+        allDirty = allStale = true;
+    }
+
+    Board getBoard() { return board; }
+
+    @Override
+    public void pieceLocked(TetrisBoard b, Piece piece, Point position) {
+        markRows(Math.max(position.y, 0), position.y + piece.getHeight());
+        lockedTop = b.getMaxHeight();
+    }
+
+    @Override
+    public void rowsCleared(TetrisBoard b, int[] rows, int count) {
+        // everything from the lowest cleared row up to the old top moved down
+        markRows(rows[0], lockedTop);
+    }
+
+    private void markRows(int low, int high) {
+        if(dirtyLow >= dirtyHigh) {
+            dirtyLow = low;
+            dirtyHigh = high;
+        } else {
+            dirtyLow = Math.min(dirtyLow, low);
+            dirtyHigh = Math.max(dirtyHigh, high);
+        }
+        if(staleLow >= staleHigh) {
+            staleLow = low;
+            staleHigh = high;
+        } else {
+            staleLow = Math.min(staleLow, low);
+            staleHigh = Math.max(staleHigh, high);
+        }
+    }
+
+    /**
+     * True if some of the screen is known to be out of date even though the board may not have changed
+     */
+    boolean isStale() {
+        return allStale || staleLow < staleHigh || staleArea != null;
+    }
+
+    /**
+     * Component pixels that changed since the last call: the piece where it was drawn, where it is now, any
+     * stack rows that changed and anything the last paint couldn't show. The caller is expected to repaint
+     * them, so they aren't returned again. null if nothing changed
+     */
+    Rectangle dirtyArea() {
+        Rectangle area = null;
+        if(allStale || !listening || stack == null) {
+            area = new Rectangle(0, 0, component.getWidth(), component.getHeight());
+        } else {
+            if(pieceDrawn)
+                area = new Rectangle(drawnPiece);
+            Piece piece = board.getCurrentPiece();
+            if(piece != null) {
+                Point p = board.getCurrentPiecePosition();
+                area = union(area, cellsRect(new Rectangle(), p.x, p.y, p.x + piece.getWidth(), p.y + piece.getHeight()));
+            }
+            if(staleLow < staleHigh)
+                area = union(area, cellsRect(new Rectangle(), 0, staleLow, board.getWidth(), staleHigh));
+            if(staleArea != null)
+                area = union(area, staleArea);
+        }
+        allStale = false;
+        staleLow = staleHigh = 0;
+        staleArea = null;
+        return area;
+    }
+
+    private static Rectangle union(Rectangle area, Rectangle r) {
+        return area == null ? r : area.union(r);
+    }
+
+    /**
+     * Remember that r may be wrong on screen unless clip covered it
+     */
+    private void shown(Rectangle r, Rectangle clip) {
+        if(clip == null)
+            return;
+        Rectangle visible = r.intersection(new Rectangle(0, 0, component.getWidth(), component.getHeight()));
+        if(!visible.isEmpty() && !clip.contains(visible))
+            staleArea = union(staleArea, visible);
+    }
+
+    /**
+     * Bring the cached stack up to date, copy it to g and draw the active piece on top. Whatever changed
+     * outside g's clip is left for the next dirtyArea
+     */
+    void paint(Graphics g) {
+        int w = component.getWidth();
+        int h = component.getHeight();
+        if(w <= 0 || h <= 0 || board == null)
+            return;
+        if(stack == null || stack.getWidth() != w || stack.getHeight() != h) {
+            stack = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            allDirty = true;
+        }
+        if(allDirty || !listening)
+            redrawRows(0, board.getHeight());
+        else if(dirtyLow < dirtyHigh)
+            redrawRows(dirtyLow, Math.min(dirtyHigh, board.getHeight()));
+        allDirty = false;
+        dirtyLow = dirtyHigh = 0;
+
+        g.drawImage(stack, 0, 0, null);
+
+        Rectangle clip = g.getClipBounds();
+        if(pieceDrawn) // the old piece is only erased inside the clip
+            shown(drawnPiece, clip);
+        pieceDrawn = false;
+        Piece piece = board.getCurrentPiece();
+        if(piece != null) {
+            Point position = board.getCurrentPiecePosition();
+            final int dx = Math.round(dX() - 2);
+            final int dy = Math.round(dY() - 2);
+            g.setColor(piece.getType().getColor());
+            for(Point offset : piece.getBody()) {
+                int x = position.x + offset.x;
+                int y = position.y + offset.y;
+                if(y < board.getHeight())
+                    g.fillRect(xPixel(x) + 1, yPixel(y) + 1, dx, dy);
+            }
+            cellsRect(drawnPiece, position.x, position.y, position.x + piece.getWidth(), position.y + piece.getHeight());
+            pieceDrawn = true;
+            shown(drawnPiece, clip);
+        }
+    }
+
+    /**
+     * Repaint stack rows [low, high) into the cached image, with the border and spacer line over them
+     */
+    private void redrawRows(int low, int high) {
+        Graphics2D g = stack.createGraphics();
+        int w = stack.getWidth();
+        int h = stack.getHeight();
+        g.setColor(component.getBackground());
+        if(low == 0 && high == board.getHeight())
+            g.fillRect(0, 0, w, h);
+        else // exactly the rows' pixels, the cells next to them are still right
+            g.fillRect(1, yPixel(high - 1) + 1, w - 2, yPixel(low - 1) - yPixel(high - 1));
+
+        final int dx = Math.round(dX() - 2);
+        final int dy = Math.round(dY() - 2);
+        for(int y = low; y < high; y++) {
+            int top = yPixel(y) + 1;
+            for(int x = 0; x < board.getWidth(); x++) {
+                Piece.PieceType pieceType = board.getGrid(x, y);
+                if(pieceType != null) {
+                    // +1 to leave a white border
+                    g.setColor(pieceType.getColor());
+                    g.fillRect(xPixel(x) + 1, top, dx, dy);
+                }
+            }
+        }
+
+        // Draw a rect around the whole thing and the line separating the top
+        g.setColor(component.getForeground());
+        g.drawRect(0, 0, w - 1, h - 1);
+        int spacerY = yPixel(board.getHeight() - topSpace - 1);
+        g.drawLine(0, spacerY, w - 1, spacerY);
+        g.dispose();
+    }
+
+    /**
+     * Set r to the pixels covering cells [x0, x1) x [y0, y1), with a pixel of margin for rounding
+     * @return r
+     */
+    private Rectangle cellsRect(Rectangle r, int x0, int y0, int x1, int y1) {
+        int left = xPixel(x0) - 1;
+        int top = yPixel(y1 - 1) - 1;
+        int right = xPixel(x1) + 1;
+        int bottom = yPixel(y0 - 1) + 1;
+        r.setBounds(left, top, right - left + 1, bottom - top + 1);
+        return r;
+    }
+
+    // same mapping as JTetris's pixel helpers: 1 pixel border, y counted from the bottom
+
+    private float dX() {
+        return ((float) (component.getWidth() - 2)) / board.getWidth();
+    }
+
+    private float dY() {
+        return ((float) (component.getHeight() - 2)) / board.getHeight();
+    }
+
+    private int xPixel(int x) {
+        return Math.round(1 + (x * dX()));
+    }
+
+    private int yPixel(int y) {
+        return Math.round(component.getHeight() - 1 - (y + 1) * dY());
+    }
+}
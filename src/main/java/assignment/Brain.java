@@ -12,4 +12,13 @@ public interface Brain {
      * Should not mutate the state of the given board.
      */
     Board.Action nextMove(Board currentBoard);
+
+    /**
+     * Decide the next move, spending at most about budgetNanos on it.
+     * 
+     * Brains that don't search ignore the budget.
+     */
+    default Board.Action nextMove(Board currentBoard, long budgetNanos) {
+        return nextMove(currentBoard);
+    }
 }
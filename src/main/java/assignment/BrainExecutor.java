@@ -0,0 +1,123 @@
+package assignment;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs a Brain's decisions on a worker thread so a slow decision never blocks the thread driving the game
+ * (for JBrainTetris, the Swing event dispatch thread).
+ *
+ * Each request decides on a private copy of the board, so the game can keep painting while the brain
+ * thinks, and the move is handed back through a caller supplied executor (SwingUtilities::invokeLater to
+ * land back on the EDT, or Runnable::run to play it right on the worker). One decision runs at a time: a
+ * request made while the brain is still busy is dropped and counted, and the caller simply asks again on its
+ * next tick.
+ *
+ * The worker is a single daemon platform thread, the brain only ever runs on it so it needn't be thread safe.
+ */
+final class BrainExecutor {
+    private final Brain brain;
+    private final long budgetNanos;
+    private final Executor results;
+    private final ExecutorService worker;
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    // stats, read from any thread
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder dropped = new LongAdder(); // requests made while a decision was running
+    private final LongAdder stale = new LongAdder(); // moves the caller discarded because the game moved on
+    private final LongAdder latencyNanos = new LongAdder();
+    private final BatchSimulator.Histogram latencyMicros = new BatchSimulator.Histogram();
+
+    /**
+     * @param budgetNanos passed to Brain.nextMove, for brains that search
+     * @param results runs the callbacks that receive moves
+     */
+    BrainExecutor(Brain brain, long budgetNanos, Executor results) {
+        this.brain = brain;
+        this.budgetNanos = budgetNanos;
+        this.results = results;
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "brain-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start deciding a move for board unless a decision is already running. The board is copied before this
+     * returns, so the caller may keep moving it
+     * @param onMove gets the move, through the results executor
+     * @return false if the request was dropped because the brain is busy
+     */
+    boolean request(Board board, Consumer<Board.Action> onMove) {
+        if(!busy.compareAndSet(false, true)) {
+            dropped.increment();
+            return false;
+        }
+        Board snapshot = board instanceof TetrisBoard ? new TetrisBoard((TetrisBoard) board) : board.testMove(Board.Action.NOTHING);
+        try {
+            worker.execute(() -> decide(snapshot, onMove));
+        } catch(RejectedExecutionException e) { // closed
+            busy.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    private void decide(Board snapshot, Consumer<Board.Action> onMove) {
+        long start = System.nanoTime();
+        Board.Action move;
+        try {
+            move = brain.nextMove(snapshot, budgetNanos);
+        } catch(RuntimeException e) {
+            System.err.println("Brain failed: " + e);
+            move = Board.Action.DROP;
+        }
+        long elapsed = System.nanoTime() - start;
+        decisions.increment();
+        latencyNanos.add(elapsed);
+        latencyMicros.record(elapsed / 1000);
+
+        busy.set(false);
+        Board.Action decided = move;
+        results.execute(() -> onMove.accept(decided));
+    }
+
+    /**
+     * Count a move the caller didn't play because the board changed while it was being decided
+     */
+    void discarded() {
+        stale.increment();
+    }
+
+    /**
+     * Stop the worker, a running decision is interrupted and its move never delivered
+     */
+    void close() {
+        worker.shutdownNow();
+    }
+
+    public long getDecisions() { return decisions.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getStale() { return stale.sum(); }
+
+    public double getMeanLatencyMillis() {
+        long n = decisions.sum();
+        return n == 0 ? 0 : latencyNanos.sum() / (n * 1e6);
+    }
+
+    /**
+     * Latency percentile p (0-100), to the resolution of the histogram's buckets
+     */
+    public double getLatencyMillis(double p) {
+        return latencyMicros.percentile(p) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("brain %.2f ms avg, %.2f ms p99, %d dropped", getMeanLatencyMillis(), getLatencyMillis(99), getDropped());
+    }
+}
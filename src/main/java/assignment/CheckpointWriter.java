@@ -0,0 +1,140 @@
+package assignment;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes QTable checkpoints on a background thread so training never waits on disk I/O.
+ * Double buffered: the training thread copies its state into a free snapshot while the other
+ * one is being written. If both snapshots are busy the checkpoint is skipped instead of blocking.
+ * Files are written to a temporary sibling and atomically renamed once complete.
+ */
+class CheckpointWriter {
+    public static final int NUM_BUFFERS = 2;
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    private final ExecutorService writer;
+    private final BlockingQueue<TrainingSnapshot> freeBuffers;
+    private final int[] actionCounts;
+
+    /**
+     * Creates a writer with snapshot buffers sized for the given table
+     * @param q table that will be checkpointed
+     */
+    public CheckpointWriter(QTable q) {
+        actionCounts = q.getActionCounts();
+        freeBuffers = new ArrayBlockingQueue<>(NUM_BUFFERS);
+        for(int i = 0; i < NUM_BUFFERS; i++)
+            freeBuffers.add(new TrainingSnapshot(q.numValues(), q.maxMemorySize()));
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Snapshot the table's training state and queue it to be written
+     * @param game index of the last finished training game
+     * @param tablePath where to write the text Q table (null to skip)
+     * @param checkpointPath where to write the full binary training checkpoint (null to skip)
+     * @return true if the checkpoint was queued, false if both buffers were busy and it was skipped
+     */
+    public boolean submit(QTable q, long game, String tablePath, String checkpointPath) {
+        TrainingSnapshot snapshot = freeBuffers.poll();
+        if(snapshot == null) {
+            System.err.println("Checkpoint writer busy, skipping save @ Game: " + game);
+            return false;
+        }
+        q.snapshot(snapshot, game);
+        writer.execute(() -> {
+            try {
+                if(tablePath != null)
+                    writeTable(tablePath, snapshot.values, actionCounts);
+                if(checkpointPath != null)
+                    writeAtomically(checkpointPath, snapshot::writeTo);
+            } catch (IOException e) {
+                System.err.println(e);
+            } finally {
+                freeBuffers.add(snapshot);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Waits for queued checkpoints to finish writing and stops the writer thread
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write Q values in the text table format (one line of whitespace separated values per state).
+     * Values are streamed to a temporary file, forced to disk, then renamed over filePath
+     * so a crash mid-write never leaves a truncated table behind.
+     * @param values flattened Q values, state by state
+     * @param actionCounts number of values belonging to each state
+     */
+    public static void writeTable(String filePath, double[] values, int[] actionCounts) throws IOException {
+        writeAtomically(filePath, out -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            StringBuilder line = new StringBuilder();
+            int idx = 0;
+            for(int count : actionCounts) {
+                line.setLength(0);
+                for(int i = 0; i < count; i++)
+                    line.append(values[idx++]).append(' ');
+                line.append('\n');
+                w.append(line);
+            }
+            w.flush();
+        });
+    }
+
+    /**
+     * Body of a checkpoint file, written to a stream that is synced and renamed afterwards
+     */
+    interface Contents {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Write contents to a temporary sibling of filePath, force it to disk and atomically rename it.
+     * If any step fails the temporary file is deleted and filePath is left as it was
+     */
+    public static void writeAtomically(String filePath, Contents contents) throws IOException {
+        Path target = Paths.get(filePath);
+        Path temp = Paths.get(filePath + TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                contents.writeTo(out);
+                out.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package assignment;
+
+import java.util.List;
+
+/**
+ * A search over placements of the current piece that can be stopped at a fixed depth and a deadline,
+ * which is what AnytimeBrain needs to deepen it iteratively.
+ */
+public interface DepthLimitedSearch {
+
+    /**
+     * Best moves for the current piece looking depth placements ahead (1 is greedy on the current piece)
+     * @param deadline System.nanoTime() at which to give up
+     * @return moves placing the piece (ending with DROP), or null if the deadline passed first
+     */
+    List<Board.Action> search(Board board, int depth, long deadline);
+
+    /**
+     * Deepest depth search accepts
+     */
+    default int maxDepth() { return Integer.MAX_VALUE; }
+}
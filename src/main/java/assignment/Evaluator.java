@@ -0,0 +1,130 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays evaluation games against a frozen snapshot of a QTable on a separate fork-join pool,
+ * so training never pauses to measure progress.
+ * Every evaluation uses the same seeds, so successive results compare the policy and not the piece luck.
+ */
+class Evaluator {
+    private final QTable q;
+    private final int numGames;
+    private final long baseSeed;
+    private final ForkJoinPool pool;
+    private final double[] values; // single snapshot buffer, only refilled when no evaluation is running
+    private final AtomicBoolean running;
+
+    private volatile Result lastResult;
+
+    /**
+     * Summary of one evaluation
+     */
+    static class Result {
+        public final long game;
+        public final int[] scores; // sorted ascending
+        public final double mean;
+
+        Result(long game, int[] sortedScores) {
+            this.game = game;
+            this.scores = sortedScores;
+            long sum = 0;
+            for(int score : sortedScores)
+                sum+=score;
+            this.mean = sortedScores.length == 0 ? 0 : sum / (double) sortedScores.length;
+        }
+
+        /**
+         * Nearest-rank percentile of the scores
+         * @param p percentile in [0, 100]
+         */
+        public int percentile(double p) {
+            if(scores.length == 0) return 0;
+            int rank = (int) Math.ceil(p / 100.0 * scores.length);
+            return scores[Math.max(0, Math.min(scores.length - 1, rank - 1))];
+        }
+
+        public int median() { return percentile(50); }
+
+        @Override
+        public String toString() {
+            return "Evaluation @ Game: " + game + ", games: " + scores.length + ", mean: " + mean + ", median: " + median()
+                + ", p10: " + percentile(10) + ", p90: " + percentile(90) + ", max: " + percentile(100);
+        }
+    }
+
+    /**
+     * @param q table to evaluate
+     * @param numGames games played per evaluation
+     * @param threads parallelism of the evaluation pool
+     * @param baseSeed seed of the first evaluation game (game k uses baseSeed + k)
+     */
+    public Evaluator(QTable q, int numGames, int threads, long baseSeed) {
+        this.q = q;
+        this.numGames = numGames;
+        this.baseSeed = baseSeed;
+        this.values = new double[q.numValues()];
+        this.running = new AtomicBoolean(false);
+        this.pool = new ForkJoinPool(Math.max(1, threads), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("evaluator-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * Snapshot the current Q values and start evaluating them in the background
+     * @param game index of the last finished training game
+     * @return false if the previous evaluation hasn't finished (this one is skipped)
+     */
+    public boolean submit(long game) {
+        if(!running.compareAndSet(false, true))
+            return false;
+        q.snapshotValues(values);
+        pool.execute(() -> {
+            try {
+                lastResult = evaluate(game);
+                System.out.println(lastResult);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Play every evaluation game on the pool and collect the scores. Runs on a pool thread
+     */
+    private Result evaluate(long game) {
+        List<ForkJoinTask<Integer>> games = new ArrayList<>(numGames);
+        for(int k = 0; k < numGames; k++) {
+            long seed = baseSeed + k;
+            games.add(ForkJoinTask.adapt(() -> q.evaluateGame(values, new Random(seed))).fork());
+        }
+        int[] scores = new int[numGames];
+        for(int k = 0; k < numGames; k++)
+            scores[k] = games.get(k).join();
+        Arrays.sort(scores);
+        return new Result(game, scores);
+    }
+
+    /**
+     * Most recent finished evaluation, or null if none has finished yet
+     */
+    public Result getLastResult() { return lastResult; }
+
+    /**
+     * Wait for a running evaluation to finish and stop the pool
+     */
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
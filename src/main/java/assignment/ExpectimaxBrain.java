@@ -0,0 +1,263 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Brain that plans with expectimax over the next-piece distribution: max over placements of the
+ * current piece, then an average over the 7 equally likely next pieces, then max over their
+ * placements, and so on, with BoardHeuristics scoring the leaves.
+ *
+ * The seven chance branches of every root candidate are split across a ForkJoinPool.
+ * Hypothetical pieces are placed with TetrisBoard.dropPiece on per-thread scratch boards
+ * (one per search level, refilled with copyFrom), so the search itself doesn't allocate boards.
+ * Only the best branchLimit placements (by heuristic) are searched below each max node.
+ *
+ * If the per-move time budget runs out the greedy choice is played. Wrap it in an AnytimeBrain
+ * to deepen until the budget runs out instead.
+ */
+public class ExpectimaxBrain implements Brain, Planner, DepthLimitedSearch {
+    public static final int DEFAULT_DEPTH = 2; // placements searched, including the current piece
+    public static final int DEFAULT_BRANCH_LIMIT = 6;
+    public static final long DEFAULT_BUDGET_NANOS = 50_000_000L; // 50ms per piece
+    private static final double GAME_OVER_VALUE = -1e6;
+
+    // every rotation of every piece type, indexed [type ordinal][rotation]
+    private static final Piece[][] ROTATIONS = new Piece[PieceType.values().length][4];
+    static {
+        for(PieceType type : PieceType.values())
+            for(int r = 0; r < 4; r++)
+                ROTATIONS[type.ordinal()][r] = new TetrisPiece(type, r);
+    }
+
+    private final int depth;
+    private final int branchLimit;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<TetrisBoard[]> scratch; // per-thread boards, one per search level
+
+    // search state for the current decision
+    private volatile long deadline;
+    private volatile boolean timedOut;
+    private volatile int searchDepth;
+    private long timeouts;
+
+    // queue for nextMove
+    private List<Board.Action> loadedMoves;
+    private int moveIdx;
+
+    public ExpectimaxBrain() {
+        this(DEFAULT_DEPTH, DEFAULT_BRANCH_LIMIT, DEFAULT_BUDGET_NANOS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param depth placements to look ahead, including the current piece (2-3 is practical)
+     * @param branchLimit placements expanded under each max node
+     * @param budgetNanos time allowed to plan each piece when nextMove isn't given a budget
+     * @param pool pool the chance branches run on
+     */
+    public ExpectimaxBrain(int depth, int branchLimit, long budgetNanos, ForkJoinPool pool) {
+        this.depth = Math.max(1, depth);
+        this.branchLimit = Math.max(1, branchLimit);
+        this.budgetNanos = budgetNanos;
+        this.pool = pool;
+        scratch = new ThreadLocal<>();
+        loadedMoves = new ArrayList<>();
+        moveIdx = 0;
+    }
+
+    public Board.Action nextMove(Board currentBoard) {
+        return nextMove(currentBoard, budgetNanos);
+    }
+
+    /**
+     * Plays the queued moves for the current piece, planning a new placement within budgetNanos when they run out
+     */
+    public Board.Action nextMove(Board currentBoard, long budgetNanos) {
+        if(currentBoard.getCurrentPiece() == null)
+            return Board.Action.NOTHING;
+        if(moveIdx >= loadedMoves.size()) {
+            loadedMoves = plan(currentBoard, budgetNanos);
+            moveIdx = 0;
+        }
+        return loadedMoves.get(moveIdx++);
+    }
+
+    /**
+     * Search for the best placement of the current piece, falling back on the greedy choice if the budget runs out
+     * @return fewest moves placing the piece (ending with DROP)
+     */
+    public List<Board.Action> plan(Board board) {
+        return plan(board, budgetNanos);
+    }
+
+    /**
+     * plan with budgetNanos instead of the brain's own budget
+     */
+    public List<Board.Action> plan(Board board, long budgetNanos) {
+        List<Board.Action> moves = search(board, depth, System.nanoTime() + budgetNanos);
+        if(moves == null) {
+            timeouts++;
+            moves = search(board, 1, Long.MAX_VALUE);
+        }
+        return Finesse.forBoard(board).shorten(board, moves);
+    }
+
+    public List<Board.Action> search(Board board, int depth, long deadline) {
+        this.deadline = deadline;
+        this.searchDepth = Math.max(1, depth);
+        timedOut = false;
+
+        List<PlacementEnumerator.Placement> placements = PlacementEnumerator.enumerate(board, null);
+        if(placements.isEmpty())
+            return Collections.singletonList(Board.Action.DROP);
+
+        // greedy ordering, only the best branchLimit are searched deeper
+        List<PlacementEnumerator.Placement> candidates = new ArrayList<>(placements);
+        Map<PlacementEnumerator.Placement, Double> scores = new HashMap<>();
+        for(PlacementEnumerator.Placement p : candidates)
+            scores.put(p, leafValue(p.board));
+        candidates.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        candidates = candidates.subList(0, Math.min(branchLimit, candidates.size()));
+        if(depth <= 1)
+            return candidates.get(0).moves;
+
+        // one task per (candidate, next piece) pair
+        List<List<ForkJoinTask<Double>>> tasks = new ArrayList<>();
+        for(PlacementEnumerator.Placement c : candidates) {
+            List<ForkJoinTask<Double>> chance = new ArrayList<>();
+            if(!BoardHeuristics.isGameOver(c.board)) {
+                TetrisBoard root = toTetrisBoard(c.board);
+                for(PieceType type : PieceType.values())
+                    chance.add(pool.submit(() -> bestPlacementValue(root, type, depth - 1, 1)));
+            }
+            tasks.add(chance);
+        }
+
+        List<Board.Action> best = candidates.get(0).moves;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < candidates.size(); i++) {
+            List<ForkJoinTask<Double>> chance = tasks.get(i);
+            double value;
+            if(chance.isEmpty())
+                value = GAME_OVER_VALUE;
+            else {
+                double sum = 0;
+                for(ForkJoinTask<Double> t : chance)
+                    sum+=t.join();
+                value = sum / chance.size();
+            }
+            if(value > bestValue) {
+                bestValue = value;
+                best = candidates.get(i).moves;
+            }
+        }
+        return timedOut ? null : best;
+    }
+
+    /**
+     * Max node: best value over placements of a piece of the given type on board
+     * @param remaining placements left to search including this one (>= 1)
+     * @param level index of this node's scratch boards
+     */
+    private double bestPlacementValue(TetrisBoard board, PieceType type, int remaining, int level) {
+        if(timedOut || System.nanoTime() > deadline) {
+            timedOut = true;
+            return 0;
+        }
+        TetrisBoard[] boards = scratchBoards(board);
+        TetrisBoard child = boards[level];
+
+        if(remaining == 1) {
+            double best = GAME_OVER_VALUE;
+            for(Piece p : ROTATIONS[type.ordinal()])
+                for(int x = -p.getWidth(); x < board.getWidth(); x++) {
+                    child.copyFrom(board);
+                    if(child.dropPiece(p, x))
+                        best = Math.max(best, leafValue(child));
+                }
+            return best;
+        }
+
+        // pick the best branchLimit placements by heuristic, then search below them
+        int[] bestRotation = new int[branchLimit];
+        int[] bestX = new int[branchLimit];
+        double[] bestScore = new double[branchLimit];
+        Arrays.fill(bestScore, Double.NEGATIVE_INFINITY);
+        int found = 0;
+        for(int r = 0; r < 4; r++) {
+            Piece p = ROTATIONS[type.ordinal()][r];
+            for(int x = -p.getWidth(); x < board.getWidth(); x++) {
+                child.copyFrom(board);
+                if(!child.dropPiece(p, x))
+                    continue;
+                double score = leafValue(child);
+                // insertion into the small sorted top list
+                int i = Math.min(found, branchLimit - 1);
+                if(found == branchLimit && score <= bestScore[i])
+                    continue;
+                while(i > 0 && bestScore[i - 1] < score) {
+                    bestScore[i] = bestScore[i - 1];
+                    bestRotation[i] = bestRotation[i - 1];
+                    bestX[i] = bestX[i - 1];
+                    i--;
+                }
+                bestScore[i] = score;
+                bestRotation[i] = r;
+                bestX[i] = x;
+                found = Math.min(branchLimit, found + 1);
+            }
+        }
+
+        double best = GAME_OVER_VALUE;
+        for(int i = 0; i < found; i++) {
+            child.copyFrom(board);
+            child.dropPiece(ROTATIONS[type.ordinal()][bestRotation[i]], bestX[i]);
+            best = Math.max(best, expectedValue(child, remaining - 1, level + 1));
+        }
+        return best;
+    }
+
+    /**
+     * Chance node: average over the next piece types, searched sequentially on this thread
+     */
+    private double expectedValue(TetrisBoard board, int remaining, int level) {
+        if(BoardHeuristics.isGameOver(board))
+            return GAME_OVER_VALUE;
+        double sum = 0;
+        for(PieceType type : PieceType.values())
+            sum+=bestPlacementValue(board, type, remaining, level);
+        return sum / PieceType.values().length;
+    }
+
+    private double leafValue(Board b) {
+        return BoardHeuristics.isGameOver(b) ? GAME_OVER_VALUE : BoardHeuristics.reward(b);
+    }
+
+    /**
+     * This thread's scratch boards, reallocated only when the board size changes or the search gets deeper
+     */
+    private TetrisBoard[] scratchBoards(TetrisBoard like) {
+        TetrisBoard[] boards = scratch.get();
+        if(boards == null || boards.length < searchDepth + 1 || boards[0].getWidth() != like.getWidth() || boards[0].getHeight() != like.getHeight()) {
+            boards = new TetrisBoard[searchDepth + 1];
+            for(int i = 0; i < boards.length; i++)
+                boards[i] = new TetrisBoard(like.getWidth(), like.getHeight());
+            scratch.set(boards);
+        }
+        return boards;
+    }
+
+    private static TetrisBoard toTetrisBoard(Board b) {
+        if(b instanceof TetrisBoard)
+            return (TetrisBoard) b;
+        throw new IllegalArgumentException("ExpectimaxBrain needs a TetrisBoard");
+    }
+
+    /**
+     * Number of decisions where the time budget cut the search short
+     */
+    public long getTimeouts() { return timeouts; }
+}
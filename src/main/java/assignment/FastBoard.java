@@ -0,0 +1,225 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Bare-bones board for rollouts: each row is a bitmask of one or more longs (bit x % 64 of word x / 64 set
+ * if cell x is filled, so boards of any width fit), with column heights kept alongside. Pieces are only ever
+ * dropped straight down, there's no current piece, no piece types in the grid and nothing is allocated after
+ * construction.
+ * Scores boards with the same weights as BoardHeuristics.
+ */
+final class FastBoard {
+    /**
+     * One rotation of a piece as bitmasks
+     */
+    static final class Shape {
+        final int width;
+        final int height;
+        final int[] rows; // bitmask of each row of the piece, bottom up, relative to x = 0
+        final int[] skirt; // lowest filled y of each column
+        final int[] top; // highest filled y + 1 of each column
+        final int minX; // first and last filled columns, the bounding box may hang off the board past empty columns
+        final int maxX;
+        final int topY; // highest filled y + 1, the bounding box can also have empty rows on top
+
+        Shape(Piece p) {
+            width = p.getWidth();
+            height = p.getHeight();
+            rows = new int[height];
+            skirt = new int[width];
+            top = new int[width];
+            Arrays.fill(skirt, Integer.MAX_VALUE);
+            for(Point cell : p.getBody()) {
+                rows[cell.y] |= 1 << cell.x;
+                skirt[cell.x] = Math.min(skirt[cell.x], cell.y);
+                top[cell.x] = Math.max(top[cell.x], cell.y + 1);
+            }
+            int first = width, last = -1;
+            for(int i = 0; i < width; i++)
+                if(top[i] > 0) {
+                    first = Math.min(first, i);
+                    last = i;
+                }
+            minX = first;
+            maxX = last;
+            int highest = 0;
+            for(int t : top)
+                highest = Math.max(highest, t);
+            topY = highest;
+        }
+    }
+
+    // every rotation of every piece type, indexed [type ordinal][rotation]
+    static final Shape[][] SHAPES = new Shape[PieceType.values().length][4];
+    static {
+        for(PieceType type : PieceType.values())
+            for(int r = 0; r < 4; r++)
+                SHAPES[type.ordinal()][r] = new Shape(new TetrisPiece(type, r));
+    }
+
+    private final int width;
+    private final int height;
+    private final int words; // longs per row
+    private final long lastWord; // full value of a row's last word, the words before it are full at -1
+    private final long[] rows; // row y is words [y * words, (y + 1) * words)
+    private final int[] colHeight;
+    private int maxHeight;
+    private int rowsCleared; // by the last drop
+
+    public FastBoard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        words = Math.max(1, (width + 63) >>> 6);
+        lastWord = width % 64 == 0 ? -1L : (1L << (width % 64)) - 1;
+        rows = new long[height * words];
+        colHeight = new int[width];
+    }
+
+    /**
+     * Overwrite this board with b's placed blocks (b's current piece is ignored)
+     */
+    public void load(Board b) {
+        Arrays.fill(rows, 0);
+        for(int y = 0; y < b.getMaxHeight(); y++)
+            for(int x = 0; x < width; x++)
+                if(b.getGrid(x, y) != null)
+                    rows[y * words + (x >>> 6)] |= 1L << x;
+        for(int x = 0; x < width; x++)
+            colHeight[x] = b.getColumnHeight(x);
+        maxHeight = b.getMaxHeight();
+        rowsCleared = b.getRowsCleared();
+    }
+
+    /**
+     * Rows above both boards' max heights are empty in both, so only the stacks are copied
+     */
+    public void copyFrom(FastBoard b) {
+        System.arraycopy(b.rows, 0, rows, 0, Math.max(maxHeight, b.maxHeight) * words);
+        System.arraycopy(b.colHeight, 0, colHeight, 0, width);
+        maxHeight = b.maxHeight;
+        rowsCleared = b.rowsCleared;
+    }
+
+    /**
+     * Drop s straight down at column x and clear any full rows
+     * @param x x of the lower-left corner of s's bounding box, like TetrisBoard.dropPiece
+     * @return false if s doesn't fit at x (this board is unchanged)
+     */
+    public boolean drop(Shape s, int x) {
+        if(x + s.minX < 0 || x + s.maxX >= width)
+            return false;
+        int y = -s.height;
+        for(int i = s.minX; i <= s.maxX; i++)
+            if(s.skirt[i] != Integer.MAX_VALUE)
+                y = Math.max(y, colHeight[x + i] - s.skirt[i]);
+        if(y + s.topY > height)
+            return false;
+
+        // y can be negative when the piece's bottom rows are empty (e.g. a flat stick)
+        int bottom = Math.max(0, y);
+        for(int i = bottom - y; i < s.topY; i++)
+            orRow(y + i, s.rows[i], x);
+        for(int i = s.minX; i <= s.maxX; i++)
+            if(s.top[i] > 0)
+                colHeight[x + i] = Math.max(colHeight[x + i], y + s.top[i]);
+        maxHeight = Math.max(maxHeight, y + s.topY);
+
+        // only rows the piece touched can have filled up
+        rowsCleared = 0;
+        int lowest = -1;
+        for(int r = bottom; r < y + s.topY; r++)
+            if(isFull(r)) {
+                lowest = r;
+                break;
+            }
+        if(lowest < 0)
+            return true;
+
+        int to = lowest;
+        for(int from = lowest; from < maxHeight; from++) {
+            if(isFull(from)) {
+                rowsCleared++;
+                continue;
+            }
+            System.arraycopy(rows, from * words, rows, to * words, words);
+            to++;
+        }
+        Arrays.fill(rows, to * words, maxHeight * words, 0);
+        recomputeHeights();
+        return true;
+    }
+
+    /**
+     * OR piece row mask (bit i for the piece's column i) into row y with the piece's column 0 at x.
+     * Pieces are at most 4 wide, so the mask spans at most two words
+     */
+    private void orRow(int y, int mask, int x) {
+        long m = x >= 0 ? mask : mask >>> -x;
+        int start = Math.max(x, 0);
+        int word = y * words + (start >>> 6);
+        int offset = start & 63;
+        rows[word]|=m << offset;
+        if(offset > 60 && (start >>> 6) + 1 < words)
+            rows[word + 1]|=m >>> (64 - offset);
+    }
+
+    private boolean isFull(int y) {
+        int base = y * words;
+        for(int w = 0; w < words - 1; w++)
+            if(rows[base + w] != -1L)
+                return false;
+        return rows[base + words - 1] == lastWord;
+    }
+
+    private boolean filled(int x, int y) {
+        return (rows[y * words + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    private void recomputeHeights() {
+        maxHeight = 0;
+        for(int x = 0; x < width; x++) {
+            // every column reached the cleared rows, but its top may have been in one of them
+            int h = colHeight[x] - rowsCleared;
+            while(h > 0 && !filled(x, h - 1))
+                h--;
+            colHeight[x] = h;
+            maxHeight = Math.max(maxHeight, h);
+        }
+    }
+
+    /**
+     * BoardHeuristics.reward of this board
+     */
+    public double reward() {
+        int aggregate = rowsCleared * width;
+        int bumpiness = 0;
+        for(int x = 0; x < width; x++) {
+            aggregate+=colHeight[x];
+            if(x + 1 < width)
+                bumpiness+=Math.abs(colHeight[x] - colHeight[x + 1]);
+        }
+        int holes = 0;
+        for(int y = 0; y < maxHeight; y++) {
+            for(int w = 0; w < words; w++) {
+                long covered = 0; // columns whose top is above y
+                for(int x = w * 64; x < Math.min(width, (w + 1) * 64); x++)
+                    if(colHeight[x] > y)
+                        covered |= 1L << x;
+                holes+=Long.bitCount(covered & ~rows[y * words + w]);
+            }
+        }
+        return BoardHeuristics.reward(maxHeight, height, aggregate, rowsCleared, holes, bumpiness);
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public int getMaxHeight() { return maxHeight; }
+
+    public int getRowsCleared() { return rowsCleared; }
+}
@@ -0,0 +1,306 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Shortest input sequences ("finesse") for placing a piece.
+ *
+ * For each board size a table is built once: a breadth-first search over LEFT/RIGHT/CLOCKWISE/COUNTERCLOCKWISE
+ * from the spawn position of each piece type on an open board, wall kicks included, gives every pose the piece
+ * can reach, the pose each input leads to, and for every pose the shortest route to a pose that drops the
+ * same cells (often a different rotation, e.g. one COUNTERCLOCKWISE instead of two CLOCKWISE for a symmetric
+ * piece).
+ *
+ * shorten() follows a brain's planned moves through the table and swaps in that route. Nothing is searched or
+ * copied for that: it only checks, from the column heights, that every pose on both paths is clear of the
+ * stack, in which case the real board moves and drops the piece exactly like the open one. When the stack is in
+ * the way, the piece isn't at spawn or the moves tuck with DOWN, it falls back to a breadth-first search on the
+ * real board, bounded by the planned length and MAX_SEARCH_STATES, and keeps the planned moves if that finds
+ * nothing shorter.
+ */
+final class Finesse {
+    private static final Board.Action[] INPUTS = {
+        Board.Action.LEFT, Board.Action.RIGHT, Board.Action.CLOCKWISE, Board.Action.COUNTERCLOCKWISE
+    };
+    private static final int X_OFFSET = 512; // lets negative bounding box x's pack into keys
+    static final int MAX_SEARCH_STATES = 256; // poses one fallback search may expand
+    private static final Map<Long, Finesse> TABLES = new ConcurrentHashMap<>();
+
+    private final int spawnX[]; // by piece type ordinal
+    private final int spawnY;
+    private final Poses[] poses; // by piece type ordinal
+
+    // stats
+    private final AtomicLong pieces = new AtomicLong();
+    private final AtomicLong inputsBefore = new AtomicLong();
+    private final AtomicLong inputsAfter = new AtomicLong();
+    private final AtomicLong boardSearches = new AtomicLong();
+
+    /**
+     * Poses one piece type reaches from spawn on an open board, pose 0 is the spawn pose
+     */
+    private static final class Poses {
+        Piece[] piece; // rotation of the piece in each pose
+        int[] x;
+        int[] y;
+        int[][] next; // pose after each of INPUTS, -1 where the input fails
+        int[] parent; // previous pose on the shortest path from spawn, -1 for spawn
+        int[] depth; // inputs on that path
+        int[] best; // closest pose that drops the same cells
+        List<List<Board.Action>> routes; // inputs to best, then DROP, by pose
+    }
+
+    /**
+     * Shared table for boards the size of b
+     */
+    public static Finesse forBoard(Board b) {
+        return TABLES.computeIfAbsent(((long) b.getWidth() << 32) | b.getHeight(), k -> new Finesse(b.getWidth(), b.getHeight()));
+    }
+
+    private Finesse(int width, int height) {
+        spawnY = height - JTetris.TOP_SPACE;
+        spawnX = new int[PieceType.values().length];
+        poses = new Poses[spawnX.length];
+        for(PieceType type : PieceType.values()) {
+            TetrisBoard open = new TetrisBoard(width, height);
+            Piece p = new TetrisPiece(type);
+            spawnX[type.ordinal()] = width / 2 - p.getWidth() / 2;
+            open.nextPiece(p, new Point(spawnX[type.ordinal()], spawnY));
+            poses[type.ordinal()] = search(open);
+        }
+    }
+
+    /**
+     * Breadth-first search over inputs from board's current piece, so every pose is first reached by a
+     * shortest path
+     */
+    private static Poses search(Board start) {
+        List<Board> boards = new ArrayList<>();
+        List<int[]> next = new ArrayList<>();
+        List<Integer> parent = new ArrayList<>();
+        List<Integer> depth = new ArrayList<>();
+        List<Board.Action> lastInput = new ArrayList<>();
+        Map<Integer, Integer> ids = new HashMap<>();
+
+        boards.add(start.testMove(Board.Action.NOTHING));
+        parent.add(-1);
+        depth.add(0);
+        lastInput.add(null);
+        ids.put(stateKey(boards.get(0)), 0);
+        for(int pose = 0; pose < boards.size(); pose++) {
+            int[] to = new int[INPUTS.length];
+            for(int i = 0; i < INPUTS.length; i++) {
+                Board moved = boards.get(pose).testMove(INPUTS[i]);
+                if(moved.getLastResult() != Board.Result.SUCCESS) {
+                    to[i] = -1;
+                    continue;
+                }
+                Integer id = ids.get(stateKey(moved));
+                if(id == null) {
+                    id = boards.size();
+                    ids.put(stateKey(moved), id);
+                    boards.add(moved);
+                    parent.add(pose);
+                    depth.add(depth.get(pose) + 1);
+                    lastInput.add(INPUTS[i]);
+                }
+                to[i] = id;
+            }
+            next.add(to);
+        }
+
+        int n = boards.size();
+        Poses p = new Poses();
+        p.piece = new Piece[n];
+        p.x = new int[n];
+        p.y = new int[n];
+        p.next = next.toArray(new int[n][]);
+        p.parent = new int[n];
+        p.depth = new int[n];
+        p.best = new int[n];
+        p.routes = new ArrayList<>(n);
+        Map<String, Integer> shapes = new HashMap<>(); // first (so closest) pose dropping each set of cells
+        for(int pose = 0; pose < n; pose++) {
+            Board b = boards.get(pose);
+            p.piece[pose] = b.getCurrentPiece();
+            p.x[pose] = b.getCurrentPiecePosition().x;
+            p.y[pose] = b.getCurrentPiecePosition().y;
+            p.parent[pose] = parent.get(pose);
+            p.depth[pose] = depth.get(pose);
+            Integer first = shapes.putIfAbsent(dropShape(p.piece[pose], p.x[pose]), pose);
+            p.best[pose] = first == null ? pose : first;
+        }
+        for(int pose = 0; pose < n; pose++) {
+            LinkedList<Board.Action> route = new LinkedList<>();
+            for(int at = p.best[pose]; p.parent[at] >= 0; at = p.parent[at])
+                route.addFirst(lastInput.get(at));
+            route.add(Board.Action.DROP);
+            p.routes.add(Collections.unmodifiableList(new ArrayList<>(route)));
+        }
+        return p;
+    }
+
+    /**
+     * Shortest inputs that leave the same board as moves
+     * @param moves planned moves for board's current piece, ending with DROP
+     * @return the shorter moves (ending with DROP), or moves itself if nothing shorter is known to work
+     */
+    public List<Board.Action> shorten(Board board, List<Board.Action> moves) {
+        Piece piece = board.getCurrentPiece();
+        if(piece == null || moves.isEmpty() || moves.get(moves.size() - 1) != Board.Action.DROP)
+            return moves;
+        int type = piece.getType().ordinal();
+        Point at = board.getCurrentPiecePosition();
+        if(piece.getRotationIndex() != 0 || at.x != spawnX[type] || at.y != spawnY)
+            return count(moves, searchBoard(board, moves));
+        Poses p = poses[type];
+
+        // follow the moves through the table: while every pose is above the stack the board moves like the open one
+        int pose = 0;
+        if(!clear(board, p, pose))
+            return count(moves, searchBoard(board, moves));
+        for(int i = 0; i < moves.size() - 1; i++) {
+            int input = inputIndex(moves.get(i));
+            if(input < 0) // DOWN tucks under the stack, the table only drops from above it
+                return count(moves, searchBoard(board, moves));
+            int to = p.next[pose][input];
+            if(to < 0)
+                continue; // fails against the wall here too, so the piece stays put
+            if(!clear(board, p, to))
+                return count(moves, searchBoard(board, moves));
+            pose = to;
+        }
+
+        int best = p.best[pose];
+        if(p.depth[best] >= moves.size() - 1)
+            return count(moves, moves);
+        for(int on = best; on >= 0; on = p.parent[on])
+            if(!clear(board, p, on))
+                return count(moves, searchBoard(board, moves));
+        return count(moves, p.routes.get(pose));
+    }
+
+    /**
+     * Breadth-first search of the real board for fewer inputs than moves that drop the piece onto the same cells
+     * @return the inputs found (ending with DROP), or moves if there are none within MAX_SEARCH_STATES poses
+     */
+    private List<Board.Action> searchBoard(Board board, List<Board.Action> moves) {
+        int limit = moves.size() - 2; // most inputs (not counting DROP) a shorter path can have
+        if(limit < 0)
+            return moves;
+        Board target = board.testMove(Board.Action.NOTHING);
+        for(Board.Action act : moves)
+            target.move(act);
+        if(target.getCurrentPiece() != null)
+            return moves; // moves don't place the piece
+        boardSearches.incrementAndGet();
+
+        Set<Integer> seen = new HashSet<>();
+        Deque<Board> boards = new ArrayDeque<>();
+        Deque<List<Board.Action>> inputs = new ArrayDeque<>();
+        Board first = board.testMove(Board.Action.NOTHING);
+        boards.add(first);
+        inputs.add(new ArrayList<>());
+        seen.add(stateKey(first));
+        for(int expanded = 0; !boards.isEmpty() && expanded < MAX_SEARCH_STATES; expanded++) {
+            Board b = boards.poll();
+            List<Board.Action> path = inputs.poll();
+            if(sameCells(b.testMove(Board.Action.DROP), target)) {
+                path.add(Board.Action.DROP);
+                return path;
+            }
+            if(path.size() >= limit)
+                continue;
+            for(Board.Action act : INPUTS) {
+                Board next = b.testMove(act);
+                if(next.getLastResult() != Board.Result.SUCCESS || !seen.add(stateKey(next)))
+                    continue;
+                List<Board.Action> nextPath = new ArrayList<>(path);
+                nextPath.add(act);
+                boards.add(next);
+                inputs.add(nextPath);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * True if a and b have the same piece type in every cell. Unlike TetrisBoard.equals this ignores which
+     * rotation placed each block, so e.g. a flat stick dropped from either horizontal rotation counts as the same
+     */
+    private static boolean sameCells(Board a, Board b) {
+        if(a.getMaxHeight() != b.getMaxHeight() || a.getRowsCleared() != b.getRowsCleared())
+            return false;
+        for(int y = 0; y < a.getMaxHeight(); y++)
+            for(int x = 0; x < a.getWidth(); x++)
+                if(a.getGrid(x, y) != b.getGrid(x, y))
+                    return false;
+        return true;
+    }
+
+    /**
+     * True if every block of the piece in pose is above its column's stack, so the pose is free and a drop
+     * from it lands at dropHeight
+     */
+    private static boolean clear(Board board, Poses p, int pose) {
+        Piece piece = p.piece[pose];
+        int x = p.x[pose];
+        int y = p.y[pose];
+        int[] skirt = piece.getSkirt();
+        for(int i = 0; i < skirt.length; i++)
+            if(y + skirt[i] < board.getColumnHeight(x + i))
+                return false;
+        return true;
+    }
+
+    private List<Board.Action> count(List<Board.Action> moves, List<Board.Action> result) {
+        pieces.incrementAndGet();
+        inputsBefore.addAndGet(moves.size());
+        inputsAfter.addAndGet(result.size());
+        return result;
+    }
+
+    private static int inputIndex(Board.Action act) {
+        for(int i = 0; i < INPUTS.length; i++)
+            if(INPUTS[i] == act)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Cells piece fills at x, up to a vertical shift: pieces with the same shape drop onto the same cells
+     */
+    private static String dropShape(Piece piece, int x) {
+        int bottom = Integer.MAX_VALUE;
+        for(Point b : piece.getBody())
+            bottom = Math.min(bottom, b.y);
+        List<Integer> cells = new ArrayList<>();
+        for(Point b : piece.getBody())
+            cells.add((x + b.x + X_OFFSET) * 8 + b.y - bottom);
+        Collections.sort(cells);
+        return cells.toString();
+    }
+
+    private static int stateKey(Board b) {
+        int columnKey = b.getCurrentPiece().getRotationIndex() * 2 * X_OFFSET + b.getCurrentPiecePosition().x + X_OFFSET;
+        return columnKey * 2 * X_OFFSET + b.getCurrentPiecePosition().y;
+    }
+
+    /**
+     * Average inputs per piece saved by shorten
+     */
+    public double getInputsSavedPerPiece() {
+        long n = pieces.get();
+        return n == 0 ? 0 : (inputsBefore.get() - inputsAfter.get()) / (double) n;
+    }
+
+    /**
+     * Number of pieces that needed a search on the real board
+     */
+    public long getBoardSearches() { return boardSearches.get(); }
+}
@@ -0,0 +1,194 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Headless tetris game: owns the board and applies the rules the UI plays by.
+ * Pieces spawn centered at the top of the playable rows, a piece that locks with any block above them
+ * ends the game, and a new piece spawns after every lock. No timers, so play runs as fast as the brain.
+ *
+ * JTetris, JBrainTetris and the QTable training loop all play through this class.
+ */
+public class Game {
+    // most moves a brain may make on one piece in play() before it's dropped for it
+    public static final int MAX_MOVES_PER_PIECE = 1000;
+
+    private final TetrisBoard board;
+    private final int height; // playable rows, the top space above them is only for spawning
+    private final PieceSource pieces;
+    private GameRecorder recorder; // null unless this game is being recorded
+
+    // score
+    private int piecesSpawned;
+    private int piecesPlaced;
+    private int linesCleared;
+    private boolean over;
+
+    /**
+     * Starts a game and spawns its first piece
+     * @param width board width
+     * @param height board height (not including top space)
+     * @param topSpace rows above height that pieces spawn in
+     * @param pieces source of the next piece to spawn
+     */
+    public Game(int width, int height, int topSpace, PieceSource pieces) {
+        board = new TetrisBoard(width, height + topSpace);
+        this.height = height;
+        this.pieces = pieces;
+        spawn();
+    }
+
+    /**
+     * Start over on the same board (emptied) and spawn a first piece from the piece source (reseed it first for a new sequence)
+     */
+    public void reset() {
+        board.clear();
+        piecesSpawned = 0;
+        piecesPlaced = 0;
+        linesCleared = 0;
+        over = false;
+        recorder = null; // a recording covers one game
+        spawn();
+    }
+
+    /**
+     * Apply one move to the current piece. If it locks the piece, either the game ends or the next piece spawns
+     * @return result of the move on the board, NO_PIECE once the game is over
+     */
+    public Board.Result step(Board.Action act) {
+        if(over)
+            return Board.Result.NO_PIECE;
+        if(recorder != null)
+            recorder.action(act);
+        // the board drops these references once the piece locks, but leaves them as they were at the lock
+        Piece piece = board.getCurrentPiece();
+        Point position = board.getCurrentPiecePosition();
+        Board.Result result = board.move(act);
+        switch(result) {
+          case PLACE:
+            piecesPlaced++;
+            linesCleared+=board.getRowsCleared();
+            if(board.getMaxHeight() > height) {
+                over = true;
+                board.fireToppedOut(piece, position);
+            } else {
+                spawn();
+            }
+            break;
+          case NO_PIECE:
+            spawn();
+            break;
+          default:
+            break;
+        }
+        return result;
+    }
+
+    /**
+     * Apply moves to the current piece, dropping it if they don't place it
+     * @return false if the game was already over or one of the moves went out of bounds
+     */
+    public boolean place(List<Board.Action> moves) {
+        if(over)
+            return false;
+        boolean valid = true;
+        int placed = piecesPlaced;
+        for(Board.Action act : moves) {
+            Board.Result result = step(act);
+            if(result == Board.Result.OUT_BOUNDS)
+                valid = false;
+            if(piecesPlaced != placed)
+                return valid;
+        }
+        step(Board.Action.DROP);
+        return valid;
+    }
+
+    /**
+     * Let brain play until the game is over
+     * @return pieces placed
+     */
+    public int play(Brain brain) {
+        int moves = 0;
+        int placed = piecesPlaced;
+        while(!over) {
+            step(++moves > MAX_MOVES_PER_PIECE ? Board.Action.DROP : brain.nextMove(board));
+            if(piecesPlaced != placed) {
+                placed = piecesPlaced;
+                moves = 0;
+            }
+        }
+        return piecesPlaced;
+    }
+
+    /**
+     * Record the rest of this game into r. Only allowed before the first move (right after construction or
+     * reset), so the log starts from an empty board
+     */
+    public void record(GameRecorder r) {
+        if(piecesSpawned != 1 || board.getLastAction() != Board.Action.NOTHING)
+            throw new IllegalStateException("Recording has to start before the first move");
+        recorder = r;
+        r.piece(board.getCurrentPiece());
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the placed blocks (by type), the current piece and the score, for checking replays
+     */
+    public long stateHash() {
+        long h = 0xcbf29ce484222325L;
+        for(int y = 0; y < board.getHeight(); y++)
+            for(int x = 0; x < board.getWidth(); x++) {
+                Piece.PieceType t = board.getGrid(x, y);
+                h = (h ^ (t == null ? 0 : t.ordinal() + 1)) * 0x100000001b3L;
+            }
+        Piece current = board.getCurrentPiece();
+        if(current != null) {
+            h = (h ^ current.getType().ordinal()) * 0x100000001b3L;
+            h = (h ^ current.getRotationIndex()) * 0x100000001b3L;
+            h = (h ^ board.getCurrentPiecePosition().x) * 0x100000001b3L;
+            h = (h ^ board.getCurrentPiecePosition().y) * 0x100000001b3L;
+        }
+        h = (h ^ piecesPlaced) * 0x100000001b3L;
+        h = (h ^ linesCleared) * 0x100000001b3L;
+        return h;
+    }
+
+    /**
+     * Spawn the next piece, ending the game if it doesn't fit
+     */
+    private void spawn() {
+        Piece next = pieces.next();
+        piecesSpawned++;
+        if(recorder != null)
+            recorder.piece(next);
+        try {
+            board.nextPiece(next, new Point(board.getWidth() / 2 - next.getWidth() / 2, height));
+        } catch(IllegalArgumentException ex) {
+            over = true;
+        }
+    }
+
+    /**
+     * The live board. Moves should go through step so pieces keep spawning.
+     * BoardListeners added to it hear every event from the next one on (the first piece has already spawned)
+     */
+    public TetrisBoard getBoard() { return board; }
+
+    /**
+     * Where the pieces come from, e.g. to preview the next ones
+     */
+    public PieceSource getPieces() { return pieces; }
+
+    public boolean isOver() { return over; }
+
+    /**
+     * Pieces spawned so far, including the current one
+     */
+    public int getPiecesSpawned() { return piecesSpawned; }
+
+    public int getPiecesPlaced() { return piecesPlaced; }
+
+    public int getLinesCleared() { return linesCleared; }
+}
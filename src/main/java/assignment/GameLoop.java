@@ -0,0 +1,137 @@
+package assignment;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a tick at a fixed rate on its own daemon thread, keeping to a schedule fixed at start instead of
+ * sleeping a period after each tick, so ticks don't drift or coalesce when the machine is busy.
+ *
+ * A loop that wakes late runs the ticks it missed back to back to catch up, but at most MAX_CATCH_UP of
+ * them: after a longer stall the rest are skipped (and counted) rather than replayed in a burst.
+ * How late each wake was, and how much that changed from the previous wake (jitter), are recorded in
+ * histograms.
+ *
+ * The tick runs on the loop's thread, so it has to do its own locking.
+ */
+final class GameLoop {
+    static final int MAX_CATCH_UP = 5; // most ticks run on one wake
+
+    private final String name;
+    private final Runnable tick;
+    private volatile long periodNanos;
+    private volatile Thread thread; // current loop thread, null when stopped
+
+    // stats, read from any thread
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final BatchSimulator.Histogram latenessMicros = new BatchSimulator.Histogram();
+    private final BatchSimulator.Histogram jitterMicros = new BatchSimulator.Histogram();
+
+    /**
+     * @param name name of the loop's thread
+     */
+    GameLoop(String name, long periodNanos, Runnable tick) {
+        this.name = name;
+        this.tick = tick;
+        setPeriod(periodNanos);
+    }
+
+    /**
+     * Change the rate, the next tick comes one new period after the last one
+     */
+    void setPeriod(long nanos) {
+        if(nanos <= 0)
+            throw new IllegalArgumentException("period must be positive: " + nanos);
+        periodNanos = nanos;
+        Thread t = thread;
+        if(t != null)
+            LockSupport.unpark(t);
+    }
+
+    long getPeriod() { return periodNanos; }
+
+    /**
+     * Start ticking, the first tick is a period from now. Does nothing if already running
+     */
+    synchronized void start() {
+        if(thread != null)
+            return;
+        Thread t = new Thread(this::run, name);
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Stop ticking. Doesn't wait for the thread, so a tick already running may finish after this returns
+     */
+    synchronized void stop() {
+        Thread t = thread;
+        thread = null;
+        if(t != null)
+            LockSupport.unpark(t);
+    }
+
+    boolean isRunning() { return thread != null; }
+
+    private void run() {
+        Thread me = Thread.currentThread();
+        long period = periodNanos;
+        long next = System.nanoTime() + period;
+        long lastLateness = -1;
+        while(thread == me) {
+            if(periodNanos != period) {
+                next+=periodNanos - period;
+                period = periodNanos;
+            }
+            long now = System.nanoTime();
+            if(now < next) {
+                LockSupport.parkNanos(this, next - now);
+                continue;
+            }
+
+            long lateness = now - next;
+            latenessMicros.record(lateness / 1000);
+            if(lastLateness >= 0)
+                jitterMicros.record(Math.abs(lateness - lastLateness) / 1000);
+            lastLateness = lateness;
+
+            long due = lateness / period + 1;
+            long run = Math.min(due, MAX_CATCH_UP);
+            for(long i = 0; i < run && thread == me; i++) {
+                try {
+                    tick.run();
+                } catch(RuntimeException e) {
+                    System.err.println(name + " tick failed: " + e);
+                }
+                ticks.increment();
+            }
+            skipped.add(due - run);
+            next+=due * period;
+        }
+    }
+
+    public long getTicks() { return ticks.sum(); }
+    public long getSkipped() { return skipped.sum(); }
+
+    /**
+     * Percentile p (0-100) of how late the loop woke for its ticks
+     */
+    public double getLatenessMillis(double p) {
+        return latenessMicros.percentile(p) / 1000.0;
+    }
+
+    /**
+     * Percentile p (0-100) of the change in lateness from one wake to the next
+     */
+    public double getJitterMillis(double p) {
+        return jitterMicros.percentile(p) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s late %.2f/%.2f ms p50/p99, jitter %.2f ms p99, %d skipped",
+            name, getLatenessMillis(50), getLatenessMillis(99), getJitterMillis(99), getSkipped());
+    }
+}
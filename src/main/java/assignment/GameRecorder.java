@@ -0,0 +1,132 @@
+package assignment;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Records a Game into a compact binary log that GameReplayer can re-execute.
+ *
+ * Layout (all ints are unsigned LEB128 varints):
+ *   magic "TTRL", version, width, height, topSpace, seed (8 bytes, big endian),
+ *   tokens: piece index + 1 for each spawn, NUM_TYPES + 1 + action ordinal for each move, 0 to end,
+ *   then the final state: pieces placed, lines cleared, Game.stateHash (8 bytes).
+ * Every token fits in one byte, so a log costs about a byte per move.
+ *
+ * Tokens are buffered in memory while the game runs, so recording never does I/O in the middle of a game.
+ * Attach with Game.record, call end when the game stops, then save or write.
+ */
+public class GameRecorder {
+    public static final String EXTENSION = ".ttr";
+    static final byte[] MAGIC = { 'T', 'T', 'R', 'L' };
+    static final int VERSION = 1;
+    static final int END = 0;
+    static final int FIRST_ACTION = PieceSource.NUM_TYPES + 1;
+
+    private final int width;
+    private final int height;
+    private final int topSpace;
+    private final long seed;
+    private byte[] tokens = new byte[256];
+    private int length;
+
+    // final state, set by end
+    private int piecesPlaced;
+    private int linesCleared;
+    private long hash;
+
+    /**
+     * @param seed seed the game's pieces came from, kept for reference (replays use the recorded pieces)
+     */
+    public GameRecorder(int width, int height, int topSpace, long seed) {
+        this.width = width;
+        this.height = height;
+        this.topSpace = topSpace;
+        this.seed = seed;
+    }
+
+    void piece(Piece p) {
+        token(PieceSource.indexOf(p) + 1);
+    }
+
+    void action(Board.Action act) {
+        token(FIRST_ACTION + act.ordinal());
+    }
+
+    private void token(int value) {
+        if(length + 5 > tokens.length)
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        length = putVarint(tokens, length, value);
+    }
+
+    /**
+     * Take game's current state as the final state of the log
+     */
+    public void end(Game game) {
+        piecesPlaced = game.getPiecesPlaced();
+        linesCleared = game.getLinesCleared();
+        hash = game.stateHash();
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.write(MAGIC);
+        writeVarint(data, VERSION);
+        writeVarint(data, width);
+        writeVarint(data, height);
+        writeVarint(data, topSpace);
+        data.writeLong(seed);
+        data.write(tokens, 0, length);
+        writeVarint(data, END);
+        writeVarint(data, piecesPlaced);
+        writeVarint(data, linesCleared);
+        data.writeLong(hash);
+        data.flush();
+    }
+
+    /**
+     * Write the log to filePath. Reports failures on stderr instead of throwing, recording is best effort
+     * @return false if it couldn't be written
+     */
+    public boolean save(String filePath) {
+        try (OutputStream out = new FileOutputStream(filePath)) {
+            write(out);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Couldn't save game log " + filePath + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Bytes of tokens recorded so far
+     */
+    public int size() { return length; }
+
+    private static int putVarint(byte[] buf, int pos, int value) {
+        while((value & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value>>>=7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value>>>=7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift+=7) {
+            int b = in.readUnsignedByte();
+            value|=(b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
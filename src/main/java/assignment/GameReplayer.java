@@ -0,0 +1,188 @@
+package assignment;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Re-executes GameRecorder logs headlessly at full speed and checks that every one ends in the recorded state.
+ * Used as a regression corpus for engine changes and to reproduce recorded games offline.
+ *
+ * Usage: java assignment.GameReplayer [--threads N] log-or-directory...
+ *
+ * Directories are searched (not recursively) for GameRecorder.EXTENSION files. Logs replay in parallel,
+ * one game per task, and the exit code is 1 if any log fails to replay or ends in a different state.
+ */
+public class GameReplayer {
+
+    /**
+     * A parsed log
+     */
+    static final class Log {
+        int width;
+        int height;
+        int topSpace;
+        long seed;
+        byte[] pieces; // PieceSource index of every spawn, in order
+        int numPieces;
+        byte[] tokens; // spawns and moves, as recorded
+        int numTokens;
+        int piecesPlaced;
+        int linesCleared;
+        long hash;
+    }
+
+    /**
+     * Outcome of replaying one log
+     */
+    static final class Result {
+        final String name;
+        final boolean matches;
+        final int moves;
+        final String error; // why it doesn't match, null if it does
+
+        Result(String name, boolean matches, int moves, String error) {
+            this.name = name;
+            this.matches = matches;
+            this.moves = moves;
+            this.error = error;
+        }
+    }
+
+    public static Log read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        byte[] magic = new byte[GameRecorder.MAGIC.length];
+        data.readFully(magic);
+        if(!Arrays.equals(magic, GameRecorder.MAGIC))
+            throw new IOException("Not a game log");
+        int version = GameRecorder.readVarint(data);
+        if(version != GameRecorder.VERSION)
+            throw new IOException("Unsupported game log version " + version);
+
+        Log log = new Log();
+        log.width = GameRecorder.readVarint(data);
+        log.height = GameRecorder.readVarint(data);
+        log.topSpace = GameRecorder.readVarint(data);
+        log.seed = data.readLong();
+        log.pieces = new byte[64];
+        log.tokens = new byte[256];
+        int token;
+        while((token = GameRecorder.readVarint(data)) != GameRecorder.END) {
+            if(token >= GameRecorder.FIRST_ACTION + Board.Action.values().length)
+                throw new IOException("Bad token " + token);
+            if(log.numTokens == log.tokens.length)
+                log.tokens = Arrays.copyOf(log.tokens, log.tokens.length * 2);
+            log.tokens[log.numTokens++] = (byte) token;
+            if(token < GameRecorder.FIRST_ACTION) {
+                if(log.numPieces == log.pieces.length)
+                    log.pieces = Arrays.copyOf(log.pieces, log.pieces.length * 2);
+                log.pieces[log.numPieces++] = (byte) (token - 1);
+            }
+        }
+        log.piecesPlaced = GameRecorder.readVarint(data);
+        log.linesCleared = GameRecorder.readVarint(data);
+        log.hash = data.readLong();
+        return log;
+    }
+
+    /**
+     * Play log's moves on a fresh game dealing log's pieces
+     * @return the game in its final state
+     * @throws IllegalStateException if a piece spawns at a different point than it was recorded
+     */
+    public static Game replay(Log log) {
+        Game game = new Game(log.width, log.height, log.topSpace, PieceSource.sequence(log.pieces, log.numPieces));
+        Board.Action[] actions = Board.Action.values();
+        int spawns = 0;
+        for(int i = 0; i < log.numTokens; i++) {
+            int token = log.tokens[i];
+            if(token < GameRecorder.FIRST_ACTION) {
+                if(game.getPiecesSpawned() != ++spawns)
+                    throw new IllegalStateException("Piece " + spawns + " spawned out of step at token " + i);
+            } else
+                game.step(actions[token - GameRecorder.FIRST_ACTION]);
+        }
+        return game;
+    }
+
+    /**
+     * Replay one log file and compare its final state
+     */
+    static Result check(File file) {
+        Log log;
+        try (InputStream in = new FileInputStream(file)) {
+            log = read(in);
+        } catch (IOException e) {
+            return new Result(file.getPath(), false, 0, e.toString());
+        }
+        int moves = log.numTokens - log.numPieces;
+        try {
+            Game game = replay(log);
+            if(game.stateHash() != log.hash)
+                return new Result(file.getPath(), false, moves, "final state differs (pieces " + game.getPiecesPlaced() + " vs "
+                    + log.piecesPlaced + ", lines " + game.getLinesCleared() + " vs " + log.linesCleared + ")");
+            return new Result(file.getPath(), true, moves, null);
+        } catch (RuntimeException e) {
+            return new Result(file.getPath(), false, moves, e.toString());
+        }
+    }
+
+    /**
+     * Replay every file on a pool of threads
+     * @return results in the order of files
+     */
+    public static List<Result> checkAll(List<File> files, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>(files.size());
+            for(File f : files)
+                tasks.add(pool.submit(() -> check(f)));
+            List<Result> results = new ArrayList<>(files.size());
+            for(ForkJoinTask<Result> t : tasks)
+                results.add(t.join());
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<File> files = new ArrayList<>();
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+                continue;
+            }
+            File f = new File(args[i]);
+            if(f.isDirectory()) {
+                File[] logs = f.listFiles((dir, name) -> name.endsWith(GameRecorder.EXTENSION));
+                Arrays.sort(logs);
+                files.addAll(Arrays.asList(logs));
+            } else
+                files.add(f);
+        }
+        if(files.isEmpty()) {
+            System.err.println("Usage: java assignment.GameReplayer [--threads N] log-or-directory...");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = checkAll(files, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long moves = 0;
+        int failed = 0;
+        for(Result r : results) {
+            moves+=r.moves;
+            if(!r.matches) {
+                failed++;
+                System.out.println("MISMATCH " + r.name + ": " + r.error);
+            }
+        }
+        System.out.println("Replayed " + results.size() + " logs (" + moves + " moves) in " + seconds + "s on " + threads
+            + " threads, " + failed + " mismatched");
+        if(failed > 0)
+            System.exit(1);
+    }
+}
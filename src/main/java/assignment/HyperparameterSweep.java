@@ -0,0 +1,326 @@
+package assignment;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Trains many QTables with different TrainingConfig settings concurrently and ranks them by
+ * evaluation score.
+ *
+ * Usage: java assignment.HyperparameterSweep [--config base.properties] [key=value ...]
+ *            [--grid key=v1,v2,...]... [--random key=min:max | key=log:min:max]... [--samples N]
+ *            [--threads N] [--memory-mb MB] [--seed N] [--out results.csv]
+ *
+ * Grid settings are crossed with each other; each random setting is drawn independently
+ * for --samples trials (per grid point). Every trial uses the same training and evaluation seeds,
+ * so scores differ only by their settings (--seed picks the random samples and the training seed when none is set).
+ * Trials run on a fixed pool, and each reserves its estimated table size from a shared memory budget
+ * before starting, so large tables queue up instead of exhausting the heap.
+ */
+public class HyperparameterSweep {
+    // rough per-object sizes for estimating a trial's heap use
+    private static final long BYTES_PER_ACTION = 160; // QAction + its moves list
+    private static final long BYTES_PER_STATE = 700; // QState + decoded base board
+    private static final long BYTES_PER_MEMORY = 48; // Memory entry + deque slot
+
+    private final TrainingConfig base;
+    private final Map<String, List<String>> grid = new LinkedHashMap<>();
+    private final Map<String, Range> randomSpecs = new LinkedHashMap<>();
+    private int samples = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long memoryBudgetMb = Runtime.getRuntime().maxMemory() / (1 << 20) * 8 / 10; // leave headroom for the JVM
+    private String outPath = "sweep_results.csv";
+    private long sweepSeed = 1;
+
+    /**
+     * Outcome of one trial
+     */
+    static class Trial {
+        final int idx;
+        final Map<String, String> params;
+        Evaluator.Result result;
+        double trainSeconds;
+        String error;
+
+        Trial(int idx, Map<String, String> params) {
+            this.idx = idx;
+            this.params = params;
+        }
+
+        double score() { return result == null ? Double.NEGATIVE_INFINITY : result.mean; }
+    }
+
+    /**
+     * Bounds of a random axis, parsed from "min:max" or "log:min:max"
+     */
+    static class Range {
+        final double min;
+        final double max;
+        final boolean log;
+
+        Range(String key, String spec) {
+            String[] parts = spec.split(":");
+            log = parts.length == 3 && parts[0].equals("log");
+            if(parts.length != (log ? 3 : 2))
+                throw new IllegalArgumentException("Random spec must be min:max or log:min:max: " + key + "=" + spec);
+            try {
+                min = Double.parseDouble(parts[log ? 1 : 0]);
+                max = Double.parseDouble(parts[log ? 2 : 1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad bounds in random spec: " + key + "=" + spec);
+            }
+            if(!(min <= max) || Double.isInfinite(min) || Double.isInfinite(max))
+                throw new IllegalArgumentException("Random spec needs finite min <= max: " + key + "=" + spec);
+            if(log && min <= 0)
+                throw new IllegalArgumentException("Log random spec needs positive bounds: " + key + "=" + spec);
+        }
+    }
+
+    public HyperparameterSweep(TrainingConfig baseConfig) {
+        base = baseConfig;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        HyperparameterSweep sweep = new HyperparameterSweep(new TrainingConfig());
+        try {
+            sweep.parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        List<Trial> trials = sweep.run();
+        try {
+            sweep.writeResults(trials, sweep.outPath);
+        } catch (IOException e) {
+            System.err.println("Couldn't write results: " + e);
+        }
+        for(int i = 0; i < Math.min(10, trials.size()); i++)
+            System.out.println((i + 1) + ". " + describe(trials.get(i)));
+    }
+
+    private void parseArgs(String[] args) throws IOException {
+        for(int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if(arg.equals("--config") && hasValue)
+                base.load(args[++i]);
+            else if(arg.equals("--grid") && hasValue)
+                addGrid(args[++i]);
+            else if(arg.equals("--random") && hasValue)
+                addRandom(args[++i]);
+            else if(arg.equals("--samples") && hasValue)
+                samples = Integer.parseInt(args[++i]);
+            else if(arg.equals("--threads") && hasValue)
+                threads = Integer.parseInt(args[++i]);
+            else if(arg.equals("--memory-mb") && hasValue)
+                memoryBudgetMb = Long.parseLong(args[++i]);
+            else if(arg.equals("--seed") && hasValue)
+                sweepSeed = Long.parseLong(args[++i]);
+            else if(arg.equals("--out") && hasValue)
+                outPath = args[++i];
+            else if(arg.contains("="))
+                base.set(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            else
+                throw new IllegalArgumentException("Unrecognized argument: " + arg);
+        }
+        base.validate();
+    }
+
+    /**
+     * Add a grid axis, "key=v1,v2,..."
+     */
+    public void addGrid(String spec) {
+        int eq = spec.indexOf('=');
+        if(eq < 0) throw new IllegalArgumentException("Grid spec must be key=v1,v2,...: " + spec);
+        String key = spec.substring(0, eq);
+        List<String> values = Arrays.asList(spec.substring(eq + 1).split(","));
+        TrainingConfig check = base.clone();
+        for(String v : values)
+            check.set(key, v); // validate key and values
+        grid.put(key, values);
+    }
+
+    /**
+     * Add a random axis, "key=min:max" (uniform) or "key=log:min:max" (log-uniform)
+     */
+    public void addRandom(String spec) {
+        int eq = spec.indexOf('=');
+        if(eq < 0) throw new IllegalArgumentException("Random spec must be key=min:max or key=log:min:max: " + spec);
+        String key = spec.substring(0, eq);
+        base.get(key); // validate key
+        randomSpecs.put(key, new Range(key, spec.substring(eq + 1)));
+    }
+
+    /**
+     * Expand the grid and random specs into trials, run them and return them best first
+     */
+    public List<Trial> run() {
+        List<Trial> trials = expand();
+        long budget = Math.max(1, memoryBudgetMb);
+        Semaphore memory = new Semaphore((int) Math.min(Integer.MAX_VALUE, budget), true);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<?>> futures = new ArrayList<>();
+        System.out.println("Running " + trials.size() + " trials on " + threads + " threads, memory budget " + budget + "MB");
+
+        for(Trial t : trials) {
+            futures.add(pool.submit(() -> {
+                TrainingConfig config = configFor(t);
+                int needMb = (int) Math.max(1, estimateBytes(config) >> 20);
+                if(needMb > budget) {
+                    t.error = "needs ~" + needMb + "MB, over the " + budget + "MB budget";
+                    return;
+                }
+                memory.acquireUninterruptibly(needMb);
+                try {
+                    long start = System.nanoTime();
+                    t.result = train(config);
+                    t.trainSeconds = (System.nanoTime() - start) / 1e9;
+                    System.out.println("Finished trial " + t.idx + ": " + describe(t));
+                } catch (RuntimeException e) {
+                    t.error = e.toString();
+                } finally {
+                    memory.release(needMb);
+                }
+            }));
+        }
+        for(Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof Error) { // out of memory: the other trials' results can't be trusted either
+                    pool.shutdownNow();
+                    throw (Error) e.getCause();
+                }
+                System.err.println(e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        trials.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return trials;
+    }
+
+    /**
+     * Train one table with config and evaluate it. Runs entirely on the calling thread
+     */
+    static Evaluator.Result train(TrainingConfig config) {
+        QTable q = new QTable(config);
+        for(long i = 0; i < config.numTrainingGames; i++) {
+            q.trainOneGame();
+            if(i % config.trainTableFreq == 0)
+                q.trainTable(config.epochs);
+        }
+
+        double[] values = new double[q.numValues()];
+        q.snapshotValues(values);
+        int[] scores = new int[config.evalGames];
+        for(int k = 0; k < scores.length; k++)
+            scores[k] = q.evaluateGame(values, new Random(config.evalSeed + k));
+        Arrays.sort(scores);
+        return new Evaluator.Result(config.numTrainingGames, scores);
+    }
+
+    /**
+     * Rough heap needed by a QTable built from config
+     */
+    static long estimateBytes(TrainingConfig c) {
+        double stateWidth = c.boardWidth / c.stateWidthShrink;
+        double stateHeight = (c.boardHeight + 1) / c.stateHeightShrink;
+        double states = Math.pow(stateHeight, stateWidth) * QTable.NUM_PIECES;
+        double actionsPerState = 4.0 * c.boardWidth; // every rotation at every column
+        double bytes = states * (BYTES_PER_STATE + actionsPerState * BYTES_PER_ACTION) + (double) c.maxMemorySize * BYTES_PER_MEMORY;
+        return (long) Math.min(Long.MAX_VALUE, bytes);
+    }
+
+    private TrainingConfig configFor(Trial t) {
+        TrainingConfig c = base.clone();
+        for(Map.Entry<String, String> e : t.params.entrySet())
+            c.set(e.getKey(), e.getValue());
+        // trials only report their final score
+        c.saveFilePath = null;
+        c.metricsFilePath = null;
+        c.recordPath = null;
+        if(c.seed < 0)
+            c.seed = sweepSeed;
+        c.validate();
+        return c;
+    }
+
+    private List<Trial> expand() {
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<>());
+        for(Map.Entry<String, List<String>> axis : grid.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for(Map<String, String> p : points)
+                for(String v : axis.getValue()) {
+                    Map<String, String> q = new LinkedHashMap<>(p);
+                    q.put(axis.getKey(), v.trim());
+                    next.add(q);
+                }
+            points = next;
+        }
+
+        Random random = new Random(sweepSeed);
+        List<Trial> trials = new ArrayList<>();
+        int reps = randomSpecs.isEmpty() ? 1 : Math.max(1, samples);
+        for(Map<String, String> p : points)
+            for(int r = 0; r < reps; r++) {
+                Map<String, String> params = new LinkedHashMap<>(p);
+                for(Map.Entry<String, Range> spec : randomSpecs.entrySet())
+                    params.put(spec.getKey(), sample(spec.getKey(), spec.getValue(), random));
+                trials.add(new Trial(trials.size(), params));
+            }
+        return trials;
+    }
+
+    private String sample(String key, Range range, Random random) {
+        double u = random.nextDouble();
+        double v = range.log ? Math.exp(Math.log(range.min) + u * (Math.log(range.max) - Math.log(range.min)))
+            : range.min + u * (range.max - range.min);
+
+        if(TrainingConfig.isIntegral(key))
+            return Long.toString(Math.round(v));
+        return Double.toString(v);
+    }
+
+    /**
+     * Write trials (already ranked) as CSV: rank, each swept setting, then scores
+     */
+    public void writeResults(List<Trial> trials, String filePath) throws IOException {
+        Set<String> keys = new LinkedHashSet<>(grid.keySet());
+        keys.addAll(randomSpecs.keySet());
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(filePath)))) {
+            StringBuilder header = new StringBuilder("rank,trial");
+            for(String k : keys)
+                header.append(',').append(k);
+            header.append(",mean,median,p10,p90,max,trainSeconds,error");
+            out.println(header);
+
+            for(int i = 0; i < trials.size(); i++) {
+                Trial t = trials.get(i);
+                StringBuilder row = new StringBuilder();
+                row.append(i + 1).append(',').append(t.idx);
+                for(String k : keys)
+                    row.append(',').append(t.params.getOrDefault(k, ""));
+                if(t.result != null)
+                    row.append(',').append(t.result.mean).append(',').append(t.result.median())
+                       .append(',').append(t.result.percentile(10)).append(',').append(t.result.percentile(90))
+                       .append(',').append(t.result.percentile(100));
+                else
+                    row.append(",,,,,");
+                row.append(',').append(t.trainSeconds).append(',').append(t.error == null ? "" : '"' + t.error.replace('"', '\'') + '"');
+                out.println(row);
+            }
+        }
+    }
+
+    private static String describe(Trial t) {
+        if(t.result == null)
+            return t.params + " failed: " + t.error;
+        return t.params + " mean: " + t.result.mean + ", median: " + t.result.median() + ", trained in " + t.trainSeconds + "s";
+    }
+}
@@ -1,81 +1,144 @@
 package assignment;
 
-import java.util.*;
 import java.awt.event.*;
 
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+
 public class JBrainTetris extends JTetris {
     protected Brain brain;
-    protected javax.swing.Timer brainTimer; // time between moves that brain makes
-    public static final int BRAINDELAY = 1;    // speed for brain moves
-    public static final String FILEPATH = "src/main/java/assignment/qTable.txt"; // change for loading in table, null makes it train itself
+    protected BrainExecutor brainExecutor; // decides and plays moves off the event thread
+    protected GameLoop brainLoop; // asks for a move at a fixed rate
+    protected JLabel brainLabel; // decision latency and dropped frames
+    protected JCheckBox turboBox;
+    protected volatile boolean turbo; // ask for the next move as soon as one is played instead of on the loop
+    protected long brainMoves; // moves the brain has played this game, to spot moves decided for an old board (guarded by boardLock)
+    public static final int BRAINDELAY = 16;    // milliseconds between brain moves at 1x, one a frame
+    public static final long BRAIN_BUDGET_NANOS = 15_000_000L; // most time a searching brain may spend on a move, keeps play moving
+    public static final String FILEPATH = "src/main/java/assignment/qTable.txt"; // default table, pass a path as the first argument to load another (train headlessly with TrainTetris)
 
     public static void main(String[] args) {
-        createGUI(new JBrainTetris());
+        createGUI(new JBrainTetris(args.length > 0 ? args[0] : FILEPATH));
     }
 
     public JBrainTetris() {
-        super(); // calls JTetris constructor
+        this(FILEPATH);
+    }
 
-        // create brain and link w/ timer 
-        brain = new QLearningBrain(WIDTH, HEIGHT, 2, 3, TOP_SPACE, FILEPATH); // 2x width pooling, 3x height pooling
+    public JBrainTetris(String filePath) {
+        super(); // calls JTetris constructor
 
-        brainTimer = new javax.swing.Timer(BRAINDELAY, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                brainTick(brain.nextMove(board));
-            }
-        });
+        // create brain and link w/ game loop
+        // 2x width pooling, 3x height pooling; planned in the background while the previous piece's moves play.
+        // waits for its plans, that only blocks the brain's worker thread, never the EDT
+        brain = new SpeculativeBrain(new QLearningBrain(WIDTH, HEIGHT, 2, 3, TOP_SPACE, filePath), true);
+        // moves are played right on the worker, the EDT only draws
+        brainExecutor = new BrainExecutor(brain, BRAIN_BUDGET_NANOS, Runnable::run);
+        brainLoop = new GameLoop("brain-loop", BRAINDELAY * 1_000_000L, this::requestMove);
     }
 
     @Override
     public void tick(Board.Action verb) {} // remove user control
 
+    /**
+     * Ask the brain for a move on the current board. It's played on the brain's worker thread once decided,
+     * if the board hasn't moved since; a tick where the brain is still thinking is counted as dropped
+     */
+    protected void requestMove() {
+        synchronized(boardLock) {
+            if(!gameOn)
+                return;
+            Game requested = game;
+            long move = brainMoves;
+            brainExecutor.request(board, verb -> {
+                boolean played;
+                synchronized(boardLock) {
+                    played = gameOn && game == requested && brainMoves == move;
+                    if(played)
+                        brainTick(verb);
+                }
+                if(!played)
+                    brainExecutor.discarded();
+                if(turbo)
+                    requestMove(); // keep turbo's chain of requests going
+            });
+        }
+    }
 
-    // copy regular tick to brainTick for shifting to brain control
+    // brain moves go through the same game step the keys used to
     public void brainTick(Board.Action verb) {
-        if (!gameOn) {
-            return;
+        synchronized(boardLock) {
+            brainMoves++;
+            step(verb);
         }
+    }
 
-        Board.Result result = board.move(verb);
-        switch (result) {
-          case SUCCESS:
-          case OUT_BOUNDS:
-            break;
-          case PLACE:
-              if (board.getMaxHeight() > HEIGHT) {
-                  stopGame();
-              }
-          case NO_PIECE:
-              if (gameOn) {
-                  addNewPiece();
-              }
-            break;
+    /**
+     * Turbo plays moves back to back as fast as the brain decides them, the board is still only drawn once a
+     * frame. Off, the brain moves on its loop at the time scale's pace
+     */
+    public void setTurbo(boolean on) {
+        turbo = on;
+        if(turbo) {
+            brainLoop.stop();
+            requestMove();
+        } else if(gameOn) {
+            brainLoop.start();
         }
+    }
 
-        repaint();
+    @Override
+    public void updateTimer() {
+        super.updateTimer();
+        brainLoop.setPeriod(Math.round(BRAINDELAY * 1e6 / getTimeScale()));
     }
 
-    // same as regular startGame except brainTimer.start()
     @Override
-    public void startGame() {
-        board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
+    protected void updateRates(long now) {
+        super.updateRates(now);
+        loopLabel.setText(turbo ? "turbo" : brainLoop.toString()); // gravity doesn't move the brain's pieces
+        updateBrainLabel();
+    }
 
-        repaint();
+    protected void updateBrainLabel() {
+        if(brainLabel != null)
+            brainLabel.setText(brainExecutor.toString());
+    }
 
-        count = 0;
-        gameOn = true;
+    // same as regular startGame except the brain starts moving
+    @Override
+    public void startGame() {
+        super.startGame();
+        synchronized(boardLock) {
+            brainMoves = 0;
+        }
+        if(turbo)
+            requestMove();
+        else
+            brainLoop.start();
+    }
 
-        random = new Random();
+    @Override
+    public void stopGame() {
+        super.stopGame();
+        brainLoop.stop();
+        updateBrainLabel();
+    }
 
-        startButton.setEnabled(!gameOn);
-        stopButton.setEnabled(gameOn);
-        timeLabel.setText(" ");
-        addNewPiece();
-        timer.start();
-        
-        brainTimer.start(); // only added info
+    @Override
+    public java.awt.Container createControlPanel() {
+        java.awt.Container panel = super.createControlPanel();
+        brainLabel = new JLabel(" ");
+        panel.add(brainLabel);
 
-        startTime = System.currentTimeMillis();
+        turboBox = new JCheckBox("Turbo");
+        turboBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setTurbo(turboBox.isSelected());
+            }
+        });
+        panel.add(turboBox);
+        return panel;
     }
 
 }
@@ -6,8 +6,6 @@ import java.util.*;
 import java.awt.event.*;
 import javax.swing.event.*;
 
-import assignment.Piece.PieceType;
-
 
 /**
  * JTetris presents a tetris game in a window.
@@ -28,6 +26,10 @@ public class JTetris extends JComponent {
     // when it has landed -- game over!
     public static final int TOP_SPACE = 4;
 
+    // Directory to log every game to (see GameRecorder),
+    // set with -Dtetris.record=dir, null to not record
+    public static final String RECORD_DIR = System.getProperty("tetris.record");
+
     /**
      * Creates a Window,
      * installs the JTetris or JBrainTetris,
@@ -75,42 +77,54 @@ public class JTetris extends JComponent {
         createGUI(new JTetris());
     }
 
-    // Is drawing optimized
+    // Is drawing optimized (repaint only what changed)
     protected boolean DRAW_OPTIMIZE = true;
 
+    // Draws the board from a cached image of its stack
+    private final BoardRenderer renderer = new BoardRenderer(this, TOP_SPACE);
+
     // Board data structure
     protected Board board;
+    protected Game game; // rules of the current game, owns board while one is running
+    protected GameRecorder recorder; // logs the current game when RECORD_DIR is set
+
+    // Gravity runs on its own thread while the EDT paints, so
+    // board, game, count, moves and the renderer are only
+    // touched while holding this
+    protected final Object boardLock = new Object();
 
     // State of the game
-    protected boolean gameOn;    // true if we are playing
+    protected volatile boolean gameOn;    // true if we are playing
     protected int count;        // how many pieces played so far
     protected long startTime;    // used to measure elapsed time
-    protected Random random;    // the random generator for new pieces
+    protected PieceSource pieces;    // where new pieces come from
 
     // Controls
     protected JLabel countLabel;
     protected JLabel timeLabel;
     protected JButton startButton;
     protected JButton stopButton;
-    protected javax.swing.Timer timer;
-    protected JSlider speed;
-
-    public final int DELAY = 400;    // milliseconds per tick
-
-    // The 7 canonical tetris pieces.
-    public final Piece[] PIECES = new Piece[] {
-        new TetrisPiece(PieceType.STICK),
-        new TetrisPiece(PieceType.SQUARE),
-        new TetrisPiece(PieceType.T),
-        new TetrisPiece(PieceType.LEFT_L),
-        new TetrisPiece(PieceType.RIGHT_L),
-        new TetrisPiece(PieceType.LEFT_DOG),
-        new TetrisPiece(PieceType.RIGHT_DOG)
-    };
+    protected JLabel rateLabel;
+    protected JLabel loopLabel;
+    protected GameLoop gravity; // ticks DOWN at a fixed rate
+    protected javax.swing.Timer frameTimer; // repaints and refreshes the labels at most FRAME_DELAY apart
+    protected JSlider timeScale; // log2 of how fast game time runs
+
+    public final int DELAY = 400;    // milliseconds per gravity tick at 1x
+    public static final int FRAME_DELAY = 16; // milliseconds per frame, about 60 fps
+    public static final int RATE_INTERVAL = 500; // milliseconds between pieces/sec and moves/sec updates
+
+    // Throughput, counted by step and shown by the frame timer (guarded by boardLock)
+    protected long moves;            // moves played this game
+    private boolean framePending;    // a step changed the board since the last frame
+    private long rateStart;          // when the current rate window opened
+    private long rateMoves;          // moves when it opened
+    private int ratePieces;          // count when it opened
 
     JTetris() {
         super();
         setPreferredSize(new Dimension(WIDTH*PIXELS+2, (HEIGHT+TOP_SPACE)*PIXELS+2));
+        setOpaque(true); // the renderer fills every pixel
         gameOn = false;
 
         board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
@@ -168,36 +182,52 @@ public class JTetris extends JComponent {
         },
         "drop", KeyStroke.getKeyStroke('w'), WHEN_IN_FOCUSED_WINDOW);
 
-        // Create the Timer object and have it send
-        // tick(DOWN) periodically
-        timer = new javax.swing.Timer(DELAY, new ActionListener() {
+        // Create the game loop and have it send
+        // tick(DOWN) periodically, off the EDT
+        gravity = new GameLoop("gravity", DELAY * 1_000_000L, () -> tick(Board.Action.DOWN));
+
+        frameTimer = new javax.swing.Timer(FRAME_DELAY, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                tick(Board.Action.DOWN);
+                frame();
             }
         });
     }
 
     /**
-     * Sets the internal state and starts the timer
+     * Sets the internal state and starts the game loop
      * so the game is happening.
      */
     public void startGame() {
-        // cheap way to reset the board state
-        board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
+        long seed = new Random().nextLong(); // diff seq each game
+        pieces = PieceSource.uniform(seed);
+
+        synchronized (boardLock) {
+            // new game spawns its first piece
+            game = new Game(WIDTH, HEIGHT, TOP_SPACE, pieces);
+            board = game.getBoard();
+            if (RECORD_DIR != null) {
+                recorder = new GameRecorder(WIDTH, HEIGHT, TOP_SPACE, seed);
+                game.record(recorder);
+            }
+
+            count = game.getPiecesSpawned();
+            moves = 0;
+            rateStart = System.nanoTime();
+            rateMoves = 0;
+            ratePieces = count;
+            gameOn = true;
+        }
 
         // draw the new board state once
         repaint();
 
-        count = 0;
-        gameOn = true;
-
-        random = new Random(); // diff seq each game
-
         enableButtons();
         timeLabel.setText(" ");
-        addNewPiece();
-        timer.start();
+        countLabel.setText(Integer.toString(count));
+        rateLabel.setText(" ");
+        gravity.start();
         startTime = System.currentTimeMillis();
+        frameTimer.start();
     }
 
     /**
@@ -210,175 +240,147 @@ public class JTetris extends JComponent {
     }
 
     /**
-     * Stops the game.
+     * Stops the game. Runs on the EDT, once per game.
      */
     public void stopGame() {
-        gameOn = false;
+        synchronized (boardLock) {
+            if (!gameOn) {
+                return;
+            }
+            gameOn = false;
+        }
         enableButtons();
-        timer.stop();
+        gravity.stop();
+        frameTimer.stop();
+        frame(); // show the final board and count
+        synchronized (boardLock) {
+            updateRates(System.nanoTime());
+        }
 
         long delta = (System.currentTimeMillis() - startTime)/10;
         timeLabel.setText(Double.toString(delta/100.0) + " seconds");
+
+        if (recorder != null) {
+            recorder.end(game);
+            recorder.save(new java.io.File(RECORD_DIR, "game-" + System.currentTimeMillis() + GameRecorder.EXTENSION).getPath());
+            recorder = null;
+        }
     }
 
     /**
-     * Selects the next piece to use using the random generator
-     * set in startGame().
+     * Called to change the position of the current piece.
+     * Each key press calls this once with a Board.Action
+     * and the gravity loop calls it (on its own thread)
+     * with the verb DOWN to move the piece down one square.
      */
-    public Piece pickNextPiece() {
-        return PIECES[random.nextInt(PIECES.length)];
+    public void tick(Board.Action verb) {
+        step(verb);
     }
 
     /**
-     * Adds a new random piece to the board.
+     * Plays verb in the game, which spawns the next
+     * piece when the current one lands, and stops
+     * the game once it's over. Safe to call from any
+     * thread, the board is only drawn by the next frame.
      */
-    public void addNewPiece() {
-        count++;
-        Piece nextPiece = pickNextPiece();
-        try {
-            board.nextPiece(nextPiece, new Point(board.getWidth() / 2 - nextPiece.getWidth() / 2, HEIGHT));
-        } catch(IllegalArgumentException ex) {
+    protected void step(Board.Action verb) {
+        synchronized (boardLock) {
+            if (!gameOn || game.isOver()) {
+                return;
+            }
+            game.step(verb);
+            moves++;
+            count = game.getPiecesSpawned();
+            framePending = true;
+            if (!game.isOver()) {
+                return;
+            }
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
             stopGame();
-            return;
+        } else {
+            SwingUtilities.invokeLater(this::stopGame);
         }
-        countLabel.setText(Integer.toString(count));
     }
 
     /**
-     * Called to change the position of the current piece.
-     * Each key press calls this once with a Board.Action
-     * and the timer calls it with the verb DOWN to move
-     * the piece down one square.
+     * Called by the frame timer: shows everything the
+     * steps since the last frame changed, so however fast
+     * the game runs it's only drawn about 60 times a second.
      */
-    public void tick(Board.Action verb) {
-        if (!gameOn) {
-            return;
-        }
-
-        Board.Result result = board.move(verb);
-        switch (result) {
-          case SUCCESS:
-          case OUT_BOUNDS:
-            // The board is responsible for staying in a good state
-            break;
-          case PLACE:
-              if (board.getMaxHeight() > HEIGHT) {
-                  stopGame();
-              }
-          case NO_PIECE:
-              if (gameOn) {
-                  addNewPiece();
-              }
-            break;
+    protected void frame() {
+        synchronized (boardLock) {
+            long now = System.nanoTime();
+            if (now - rateStart >= RATE_INTERVAL * 1_000_000L) {
+                updateRates(now);
+            }
+            if (!framePending && !renderer.isStale()) {
+                return;
+            }
+            framePending = false;
+            countLabel.setText(Integer.toString(count));
+            repaintChanged();
         }
-
-        repaint();
     }
 
     /**
-     * Pixel helpers.
-     * These centralize the translation of (x,y) coords
-     * that refer to blocks in the board to (x,y) coords that
-     * count pixels.
-     *
-     * The +1's and -2's are to account for the 1 pixel
-     * rect around the perimeter.
+     * Shows pieces/sec and moves/sec since the last update,
+     * and how steadily the game loop is ticking.
      */
-
-    // width in pixels of a block
-    private final float dX() {
-        return( ((float)(getWidth()-2)) / board.getWidth() );
-    }
-
-    // height in pixels of a block
-    private final float dY() {
-        return( ((float)(getHeight()-2)) / board.getHeight() );
-    }
-
-    // the x pixel coord of the left side of a block
-    private final int xPixel(int x) {
-        return(Math.round(1 + (x * dX())));
-    }
-
-    // the y pixel coord of the top of a block
-    private final int yPixel(int y) {
-        return(Math.round(getHeight() -1 - (y+1)*dY()));
+    protected void updateRates(long now) {
+        loopLabel.setText(gravity.toString());
+        double seconds = (now - rateStart) / 1e9;
+        rateLabel.setText(String.format("%.1f pieces/s, %.0f moves/s",
+            (count - ratePieces) / seconds, (moves - rateMoves) / seconds));
+        rateStart = now;
+        rateMoves = moves;
+        ratePieces = count;
     }
 
     /**
      * Draws the current board with a 1 pixel border
-     * around the whole thing. Uses the pixel helpers
-     * above to map board coords to pixel coords.
-     * Draws rows that are filled all the way across in green.
+     * around the whole thing. The locked blocks come
+     * from the renderer's cached image, so a frame only
+     * redraws rows that changed and the falling piece.
      */
     public void paintComponent(Graphics g) {
-
-        // Draw a rect around the whole thing
-        g.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
-
-        // Draw the line separating the top
-        int spacerY = yPixel(board.getHeight() - TOP_SPACE - 1);
-        g.drawLine(0, spacerY, getWidth() - 1, spacerY);
-
-        // check if we are drawing with clipping
-        Rectangle clip = null;
-        if (DRAW_OPTIMIZE) {
-            clip = g.getClipBounds();
+        synchronized (boardLock) {
+            renderer.setBoard(board);
+            renderer.paint(g);
         }
+    }
 
-        // Factor a few things out to help the optimizer
-        final int dx = Math.round(dX() - 2);
-        final int dy = Math.round(dY() - 2);
-        final int bWidth = board.getWidth();
-        final int bHeight = board.getHeight();
-
-        // Keep a set of the piece positions, so they can be rendered specially.
-        Set<Point> currentPiecePositions = new HashSet<>();
-        Piece currentPiece = board.getCurrentPiece();
-        if(currentPiece != null) {
-            Point position = board.getCurrentPiecePosition();
-            for(Point offset : currentPiece.getBody()) {
-                currentPiecePositions.add(new Point(position.x + offset.x, position.y + offset.y));
-            }
+    /**
+     * Repaints only the part of the board that changed
+     * since the last paint (all of it if DRAW_OPTIMIZE is off).
+     */
+    protected void repaintChanged() {
+        Rectangle dirty;
+        synchronized (boardLock) {
+            renderer.setBoard(board);
+            dirty = renderer.dirtyArea();
         }
-
-        // Loop through and draw all the blocks: left-right, bottom-top
-        for (int x = 0; x < bWidth; x++) {
-            int left = xPixel(x); // the left pixel
-
-            // right pixel (useful for clip optimization)
-            int right = xPixel(x + 1) - 1;
-
-            // skip this x if it is outside the clip rect
-            if (DRAW_OPTIMIZE && clip != null) {
-                if ((right < clip.x) || (left >= (clip.x + clip.width))) {
-                    continue;
-                }
-            }
-
-            // draw from 0 up to the col height
-            for (int y = 0; y < bHeight; y++) {
-                Piece.PieceType pieceType = board.getGrid(x, y);
-                
-                // Special case if this position is part of the currently active piece.
-                if(currentPiecePositions.contains(new Point(x, y))) pieceType = currentPiece.getType();
-
-                if (pieceType != null) {
-                    // +1 to leave a white border
-                    g.setColor(pieceType.getColor());
-                    g.fillRect(left + 1, yPixel(y) + 1, dx, dy);
-                }
-            }
+        if (!DRAW_OPTIMIZE) {
+            repaint();
+        } else if (dirty != null) {
+            repaint(dirty);
         }
     }
 
     /**
-     * Updates the timer to reflect the current setting of the
-     * speed slider.
+     * How many times faster than normal the game runs,
+     * from the time scale slider.
+     */
+    public double getTimeScale() {
+        return Math.pow(2, timeScale.getValue());
+    }
+
+    /**
+     * Updates the gravity loop to reflect the current setting
+     * of the time scale slider.
      */
     public void updateTimer() {
-        double value = ((double)speed.getValue())/speed.getMaximum();
-        timer.setDelay((int)(DELAY - value*DELAY));
+        gravity.setPeriod(Math.round(DELAY * 1e6 / getTimeScale()));
     }
 
     /**
@@ -398,6 +400,12 @@ public class JTetris extends JComponent {
         timeLabel = new JLabel(" ");
         panel.add(timeLabel);
 
+        // THROUGHPUT
+        rateLabel = new JLabel(" ");
+        panel.add(rateLabel);
+        loopLabel = new JLabel(" ");
+        panel.add(loopLabel);
+
         panel.add(Box.createVerticalStrut(12));
 
         // START button
@@ -422,17 +430,26 @@ public class JTetris extends JComponent {
 
         JPanel row = new JPanel();
 
-        // SPEED slider
+        // TIME SCALE slider, in powers of two from 1/4x to 16x
         panel.add(Box.createVerticalStrut(12));
-        row.add(new JLabel("Speed:"));
-        speed = new JSlider(0, 200, 75);    // min, max, current
-        speed.setPreferredSize(new Dimension(100,15));
+        row.add(new JLabel("Time:"));
+        timeScale = new JSlider(-2, 4, 0);    // min, max, current
+        java.util.Hashtable<Integer, JLabel> scaleLabels = new java.util.Hashtable<>();
+        scaleLabels.put(-2, new JLabel("\u00bcx"));
+        scaleLabels.put(0, new JLabel("1x"));
+        scaleLabels.put(2, new JLabel("4x"));
+        scaleLabels.put(4, new JLabel("16x"));
+        timeScale.setLabelTable(scaleLabels);
+        timeScale.setPaintLabels(true);
+        timeScale.setMajorTickSpacing(1);
+        timeScale.setSnapToTicks(true);
+        timeScale.setPreferredSize(new Dimension(120,40));
 
         updateTimer();
-        row.add(speed);
+        row.add(timeScale);
 
         panel.add(row);
-        speed.addChangeListener(new ChangeListener() {
+        timeScale.addChangeListener(new ChangeListener() {
             // when the slider changes, sync the timer to its value
             public void stateChanged(ChangeEvent e) {
                 updateTimer();
@@ -11,14 +11,28 @@ public class LameBrain implements Brain {
 
     private ArrayList<Board> options;
     private ArrayList<Board.Action> firstMoves;
+    private ArrayList<Integer> targetXs; // x each option drops the piece at
+
+    // best target x by surface; the target doesn't depend on where the piece is now, so it's reused as the piece slides
+    private final PlacementCache<Integer> cache = new PlacementCache<>(PlacementCache.DEFAULT_CAPACITY);
 
     /**
      * Decide what the next move should be based on the state of the board.
      */
     public Board.Action nextMove(Board currentBoard) {
+        // scores must stay positive for the best option to depend only on the surface (see scoreBoard),
+        // and a placement raises the max height by at most 4
+        PlacementCache.Key key = null;
+        if(scoreBoardHeight(currentBoard.getMaxHeight() + 4) > 0)
+            key = PlacementCache.key(currentBoard, JTetris.TOP_SPACE, 0);
+        Integer target = key == null ? null : cache.get(key);
+        if(target != null)
+            return moveToward(currentBoard, target);
+
         // Fill the our options array with versions of the new Board
         options = new ArrayList<>();
         firstMoves = new ArrayList<>();
+        targetXs = new ArrayList<>();
         enumerateOptions(currentBoard);
 
         int best = 0;
@@ -33,10 +47,28 @@ public class LameBrain implements Brain {
             }
         }
 
+        if(key != null)
+            cache.put(key, targetXs.get(bestIndex));
+
         // We want to return the first move on the way to the best Board
         return firstMoves.get(bestIndex);
     }
 
+    /**
+     * First move toward dropping the piece at x
+     */
+    private Board.Action moveToward(Board currentBoard, int x) {
+        int currentX = currentBoard.getCurrentPiecePosition().x;
+        if(currentX == x)
+            return Board.Action.DROP;
+        return currentX > x ? Board.Action.LEFT : Board.Action.RIGHT;
+    }
+
+    /**
+     * Hit rate and memory use of the placement cache
+     */
+    public PlacementCache<Integer> getCache() { return cache; }
+
     /**
      * Test all of the places we can put the current Piece.
      * Since this is just a Lame Brain, we aren't going to do smart
@@ -46,12 +78,15 @@ public class LameBrain implements Brain {
         // We can always drop our current Piece
         options.add(currentBoard.testMove(Board.Action.DROP));
         firstMoves.add(Board.Action.DROP);
+        int x = currentBoard.getCurrentPiecePosition() == null ? 0 : currentBoard.getCurrentPiecePosition().x;
+        targetXs.add(x);
 
         // Now we'll add all the places to the left we can DROP
         Board left = currentBoard.testMove(Board.Action.LEFT);
         while (left.getLastResult() == Board.Result.SUCCESS) {
             options.add(left.testMove(Board.Action.DROP));
             firstMoves.add(Board.Action.LEFT);
+            targetXs.add(left.getCurrentPiecePosition().x);
             left.move(Board.Action.LEFT);
         }
 
@@ -60,6 +95,7 @@ public class LameBrain implements Brain {
         while (right.getLastResult() == Board.Result.SUCCESS) {
             options.add(right.testMove(Board.Action.DROP));
             firstMoves.add(Board.Action.RIGHT);
+            targetXs.add(right.getCurrentPiecePosition().x);
             right.move(Board.Action.RIGHT);
         }
     }
@@ -70,7 +106,11 @@ public class LameBrain implements Brain {
      * MaxHeights close to 0.
      */
     private int scoreBoard(Board newBoard) {
-        return 100 - (newBoard.getMaxHeight() * 5);
+        return scoreBoardHeight(newBoard.getMaxHeight());
+    }
+
+    private static int scoreBoardHeight(int maxHeight) {
+        return 100 - (maxHeight * 5);
     }
 
 }
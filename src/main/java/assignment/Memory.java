@@ -0,0 +1,20 @@
+package assignment;
+
+/**
+ * Memory structure object: contains action taken at state, reward and best action at next state (nextAction)
+ */
+class Memory {
+    private QAction nextAction;
+    private QAction action;
+    private double reward;
+
+    public Memory(QAction aPrime, QAction a, double r) {
+        nextAction = aPrime;
+        action = a;
+        reward = r;
+    }
+
+    public QAction getNextAction() { return nextAction; }
+    public QAction getAction() { return action; }
+    public double getReward() { return reward; }
+}
@@ -0,0 +1,302 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Brain that plans with Monte Carlo tree search.
+ *
+ * The root's children are the placements of the current piece from PlacementEnumerator. Below each,
+ * the next piece is drawn at random and its placements (every rotation at every column) form the
+ * second level. Each iteration picks a path with UCB1, then plays a short rollout of random pieces
+ * on a FastBoard, placing each greedily (or at random with probability ROLLOUT_EPSILON), and scores
+ * the final board with the BoardHeuristics reward. The most visited root placement is played.
+ *
+ * Every worker thread searches the same tree without locks: visit counts and value sums live in
+ * atomic arrays, and a visit is counted as soon as a path is chosen so concurrent workers spread
+ * out over different branches. Workers run on a ForkJoinPool until the per-move budget runs out.
+ */
+public class MonteCarloBrain implements Brain, Planner {
+    public static final long DEFAULT_BUDGET_NANOS = 20_000_000L; // 20ms per piece
+    public static final int DEFAULT_ROLLOUT_DEPTH = 2; // random pieces played below the tree before scoring
+    private static final double EXPLORATION = 10.0; // UCB1 constant, in units of heuristic reward
+    private static final double ROLLOUT_EPSILON = 0.2; // chance a rollout places a piece at random
+    private static final double GAME_OVER_VALUE = -1000.0;
+    private static final int NUM_TYPES = PieceType.values().length;
+
+    private final long budgetNanos;
+    private final int rolloutDepth;
+    private final ForkJoinPool pool;
+
+    // tree of the current decision
+    private FastBoard[] roots; // board after each root placement
+    private int slots; // second level children per (root, next piece type): rotation * width + leftmost filled column
+    private AtomicIntegerArray rootVisits;
+    private AtomicLongArray rootValues; // Double bits of the value sums
+    private AtomicIntegerArray chanceVisits; // indexed root * NUM_TYPES + type
+    private AtomicIntegerArray childVisits; // indexed (root * NUM_TYPES + type) * slots + slot, -1 if the placement doesn't fit
+    private AtomicLongArray childValues;
+    private AtomicInteger totalVisits;
+    private volatile long deadline;
+
+    // stats
+    private long iterations;
+    private long decisions;
+
+    // queue for nextMove
+    private List<Board.Action> loadedMoves;
+    private int moveIdx;
+
+    public MonteCarloBrain() {
+        this(DEFAULT_BUDGET_NANOS, DEFAULT_ROLLOUT_DEPTH, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param budgetNanos time spent searching each piece when nextMove isn't given a budget
+     * @param rolloutDepth random pieces played after the tree's two levels before scoring the board
+     * @param pool pool the workers run on, one worker per unit of parallelism
+     */
+    public MonteCarloBrain(long budgetNanos, int rolloutDepth, ForkJoinPool pool) {
+        this.budgetNanos = budgetNanos;
+        this.rolloutDepth = Math.max(0, rolloutDepth);
+        this.pool = pool;
+        loadedMoves = new ArrayList<>();
+        moveIdx = 0;
+    }
+
+    public Board.Action nextMove(Board currentBoard) {
+        return nextMove(currentBoard, budgetNanos);
+    }
+
+    /**
+     * Plays the queued moves for the current piece, planning a new placement within budgetNanos when they run out
+     */
+    public Board.Action nextMove(Board currentBoard, long budgetNanos) {
+        if(currentBoard.getCurrentPiece() == null)
+            return Board.Action.NOTHING;
+        if(moveIdx >= loadedMoves.size()) {
+            loadedMoves = plan(currentBoard, budgetNanos);
+            moveIdx = 0;
+        }
+        return loadedMoves.get(moveIdx++);
+    }
+
+    /**
+     * Search for the best placement of the current piece until the budget runs out
+     * @return fewest moves placing the piece (ending with DROP)
+     */
+    public List<Board.Action> plan(Board board) {
+        return plan(board, budgetNanos);
+    }
+
+    /**
+     * plan with budgetNanos instead of the brain's own budget
+     */
+    public List<Board.Action> plan(Board board, long budgetNanos) {
+        deadline = System.nanoTime() + budgetNanos;
+        List<PlacementEnumerator.Placement> placements = PlacementEnumerator.enumerate(board, null);
+        if(placements.isEmpty())
+            return Collections.singletonList(Board.Action.DROP);
+        if(placements.size() == 1)
+            return placements.get(0).moves;
+
+        int n = placements.size();
+        roots = new FastBoard[n];
+        for(int i = 0; i < n; i++) {
+            roots[i] = new FastBoard(board.getWidth(), board.getHeight());
+            roots[i].load(placements.get(i).board);
+        }
+        slots = 4 * board.getWidth();
+        rootVisits = new AtomicIntegerArray(n);
+        rootValues = new AtomicLongArray(n);
+        chanceVisits = new AtomicIntegerArray(n * NUM_TYPES);
+        childVisits = new AtomicIntegerArray(n * NUM_TYPES * slots);
+        childValues = new AtomicLongArray(n * NUM_TYPES * slots);
+        totalVisits = new AtomicInteger();
+
+        List<ForkJoinTask<Long>> workers = new ArrayList<>();
+        for(int w = 0; w < Math.max(1, pool.getParallelism()); w++)
+            workers.add(pool.submit(this::search));
+        for(ForkJoinTask<Long> worker : workers)
+            iterations+=worker.join();
+        decisions++;
+
+        int best = 0;
+        for(int i = 1; i < n; i++) {
+            int v = rootVisits.get(i), bestV = rootVisits.get(best);
+            if(v > bestV || (v == bestV && mean(rootValues, rootVisits, i) > mean(rootValues, rootVisits, best)))
+                best = i;
+        }
+        return Finesse.forBoard(board).shorten(board, placements.get(best).moves);
+    }
+
+    /**
+     * One worker: run iterations until the deadline
+     * @return number of iterations run
+     */
+    private long search() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        FastBoard board = new FastBoard(roots[0].getWidth(), roots[0].getHeight());
+        FastBoard scratch = new FastBoard(board.getWidth(), board.getHeight());
+        long count = 0;
+        do {
+            int root = selectRoot();
+            double value;
+            if(BoardHeuristics.isGameOver(roots[root].getMaxHeight(), roots[root].getHeight()))
+                value = GAME_OVER_VALUE;
+            else {
+                int node = root * NUM_TYPES + random.nextInt(NUM_TYPES);
+                int slot = selectChild(node, roots[root], board);
+                if(slot < 0)
+                    value = GAME_OVER_VALUE; // next piece has nowhere to go
+                else {
+                    value = rollout(board, scratch, random);
+                    addDouble(childValues, node * slots + slot, value);
+                }
+            }
+            addDouble(rootValues, root, value);
+            count++;
+        } while(System.nanoTime() < deadline);
+        return count;
+    }
+
+    /**
+     * UCB1 over the root placements, taking unvisited ones first. Counts the visit
+     */
+    private int selectRoot() {
+        int parent = totalVisits.incrementAndGet();
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < roots.length; i++) {
+            int v = rootVisits.get(i);
+            if(v == 0 && rootVisits.compareAndSet(i, 0, 1))
+                return i;
+            double score = ucb(mean(rootValues, rootVisits, i), parent, v);
+            if(score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        rootVisits.incrementAndGet(best);
+        return best;
+    }
+
+    /**
+     * UCB1 over the placements of node's piece on root, taking unvisited ones first. Counts the visit
+     * @param board left holding root with the chosen placement dropped
+     * @return slot chosen, or -1 if no placement fits
+     */
+    private int selectChild(int node, FastBoard root, FastBoard board) {
+        FastBoard.Shape[] shapes = FastBoard.SHAPES[node % NUM_TYPES];
+        int width = root.getWidth();
+        int base = node * slots;
+        int parent = chanceVisits.incrementAndGet(node);
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for(int slot = 0; slot < slots; slot++) {
+            int v = childVisits.get(base + slot);
+            if(v < 0)
+                continue;
+            if(v == 0) {
+                board.copyFrom(root);
+                if(!board.drop(shapes[slot / width], slotX(shapes[slot / width], slot, width))) {
+                    childVisits.compareAndSet(base + slot, 0, -1);
+                    continue;
+                }
+                if(childVisits.compareAndSet(base + slot, 0, 1))
+                    return slot;
+                continue; // another worker took it first
+            }
+            double score = ucb(mean(childValues, childVisits, base + slot), parent, v);
+            if(score > bestScore) {
+                bestScore = score;
+                best = slot;
+            }
+        }
+        if(best < 0)
+            return -1;
+        childVisits.incrementAndGet(base + best);
+        board.copyFrom(root);
+        board.drop(shapes[best / width], slotX(shapes[best / width], best, width));
+        return best;
+    }
+
+    /**
+     * x of the bounding box that puts the shape's leftmost block in the slot's column
+     */
+    private static int slotX(FastBoard.Shape shape, int slot, int width) {
+        return slot % width - shape.minX;
+    }
+
+    /**
+     * Play rolloutDepth random pieces on board and score the result
+     */
+    private double rollout(FastBoard board, FastBoard scratch, ThreadLocalRandom random) {
+        for(int d = 0; d < rolloutDepth; d++) {
+            if(BoardHeuristics.isGameOver(board.getMaxHeight(), board.getHeight()))
+                return GAME_OVER_VALUE;
+            FastBoard.Shape[] shapes = FastBoard.SHAPES[random.nextInt(NUM_TYPES)];
+            if(random.nextDouble() < ROLLOUT_EPSILON) {
+                // a few tries at a random placement, then fall back on greedy
+                boolean placed = false;
+                for(int tries = 0; tries < 4 && !placed; tries++) {
+                    FastBoard.Shape shape = shapes[random.nextInt(4)];
+                    placed = board.drop(shape, random.nextInt(board.getWidth()) - shape.minX);
+                }
+                if(placed)
+                    continue;
+            }
+            int bestRotation = -1, bestX = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for(int r = 0; r < 4; r++)
+                for(int x = -shapes[r].minX; x + shapes[r].maxX < board.getWidth(); x++) {
+                    scratch.copyFrom(board);
+                    if(!scratch.drop(shapes[r], x))
+                        continue;
+                    double value = scratch.reward();
+                    if(value > bestValue) {
+                        bestValue = value;
+                        bestRotation = r;
+                        bestX = x;
+                    }
+                }
+            if(bestRotation < 0)
+                return GAME_OVER_VALUE;
+            board.drop(shapes[bestRotation], bestX);
+        }
+        return BoardHeuristics.isGameOver(board.getMaxHeight(), board.getHeight()) ? GAME_OVER_VALUE : board.reward();
+    }
+
+    private static double ucb(double mean, int parentVisits, int visits) {
+        return mean + EXPLORATION * Math.sqrt(Math.log(parentVisits) / visits);
+    }
+
+    private static double mean(AtomicLongArray values, AtomicIntegerArray visits, int i) {
+        int v = visits.get(i);
+        return v <= 0 ? 0 : Double.longBitsToDouble(values.get(i)) / v;
+    }
+
+    /**
+     * Lock-free add to a double stored as long bits
+     */
+    private static void addDouble(AtomicLongArray values, int i, double delta) {
+        long prev, next;
+        do {
+            prev = values.get(i);
+            next = Double.doubleToRawLongBits(Double.longBitsToDouble(prev) + delta);
+        } while(!values.compareAndSet(i, prev, next));
+    }
+
+    /**
+     * Total search iterations over every decision
+     */
+    public long getIterations() { return iterations; }
+
+    /**
+     * Average iterations per decision
+     */
+    public double getIterationsPerDecision() { return decisions == 0 ? 0 : iterations / (double) decisions; }
+}
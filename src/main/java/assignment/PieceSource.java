@@ -0,0 +1,269 @@
+package assignment;
+
+import java.util.*;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Where a game's pieces come from: a randomizer plus a preview queue of the pieces it has already drawn.
+ *
+ * Pieces are identified by their index in PIECES. Every randomizer draws from its own Random, so reseeding
+ * replays the same sequence, and the queue only draws ahead as far as it's peeked, so a source that shares
+ * its Random with other code draws in the same order whether or not anything previews.
+ *
+ * The randomizers are uniform (every piece equally likely every time), 7-bag (each bag deals one of every piece
+ * in a random order) and history (rerolls pieces among the last four dealt, up to six tries). Bag and history
+ * cut the droughts that make uniform scores noisy, so batch comparisons need fewer games.
+ * pregenerated() draws a game's first pieces into a byte[] when it's (re)seeded, so the game deals them without the Random.
+ */
+public abstract class PieceSource {
+    // the 7 canonical tetris pieces, shared by every source, brain and the Q table encoding
+    public static final Piece[] PIECES = new Piece[] {
+        new TetrisPiece(PieceType.STICK),
+        new TetrisPiece(PieceType.SQUARE),
+        new TetrisPiece(PieceType.T),
+        new TetrisPiece(PieceType.LEFT_L),
+        new TetrisPiece(PieceType.RIGHT_L),
+        new TetrisPiece(PieceType.LEFT_DOG),
+        new TetrisPiece(PieceType.RIGHT_DOG)
+    };
+    public static final int NUM_TYPES = PIECES.length;
+    private static final int[] INDEX = new int[PieceType.values().length]; // PIECES index by type ordinal
+    static {
+        for(int i = 0; i < NUM_TYPES; i++)
+            INDEX[PIECES[i].getType().ordinal()] = i;
+    }
+
+    protected final Random random;
+
+    // preview ring buffer, size a power of two
+    private byte[] queue = new byte[8];
+    private int head;
+    private int queued;
+
+    protected PieceSource(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Next piece index from the randomizer
+     */
+    protected abstract int draw();
+
+    /**
+     * Forget randomizer state (the current bag, the history) when reseeded
+     */
+    protected void restart() {}
+
+    /**
+     * Index in PIECES of p's type
+     */
+    public static int indexOf(Piece p) {
+        return INDEX[p.getType().ordinal()];
+    }
+
+    /**
+     * Deal the next piece
+     */
+    public Piece next() {
+        return PIECES[nextType()];
+    }
+
+    /**
+     * Deal the next piece, as its index in PIECES
+     */
+    public int nextType() {
+        if(queued == 0)
+            return draw();
+        int type = queue[head];
+        head = (head + 1) & (queue.length - 1);
+        queued--;
+        return type;
+    }
+
+    /**
+     * Piece that will be dealt after i more (0 is the next one), without dealing it
+     */
+    public Piece peek(int i) {
+        while(queued <= i) {
+            if(queued == queue.length)
+                grow();
+            queue[(head + queued) & (queue.length - 1)] = (byte) draw();
+            queued++;
+        }
+        return PIECES[queue[(head + i) & (queue.length - 1)]];
+    }
+
+    private void grow() {
+        byte[] bigger = new byte[queue.length * 2];
+        for(int i = 0; i < queued; i++)
+            bigger[i] = queue[(head + i) & (queue.length - 1)];
+        queue = bigger;
+        head = 0;
+    }
+
+    /**
+     * Start the sequence over from seed, dropping any previewed pieces
+     */
+    public void reseed(long seed) {
+        if(random != null)
+            random.setSeed(seed);
+        head = 0;
+        queued = 0;
+        restart();
+    }
+
+    /**
+     * Every piece equally likely, drawn from random (which may be shared)
+     */
+    public static PieceSource uniform(Random random) {
+        return new PieceSource(random) {
+            @Override
+            protected int draw() { return random.nextInt(NUM_TYPES); }
+        };
+    }
+
+    public static PieceSource uniform(long seed) {
+        return uniform(new Random(seed));
+    }
+
+    /**
+     * Shuffled bags of one of each piece
+     */
+    public static PieceSource bag(long seed) {
+        return new PieceSource(new Random(seed)) {
+            private final byte[] bag = new byte[NUM_TYPES];
+            private int dealt = NUM_TYPES;
+
+            @Override
+            protected int draw() {
+                if(dealt == NUM_TYPES) {
+                    for(int i = 0; i < NUM_TYPES; i++)
+                        bag[i] = (byte) i;
+                    for(int i = NUM_TYPES - 1; i > 0; i--) { // Fisher-Yates
+                        int j = random.nextInt(i + 1);
+                        byte t = bag[i];
+                        bag[i] = bag[j];
+                        bag[j] = t;
+                    }
+                    dealt = 0;
+                }
+                return bag[dealt++];
+            }
+
+            @Override
+            protected void restart() { dealt = NUM_TYPES; }
+        };
+    }
+
+    /**
+     * Rerolls a piece that's among the last four dealt, up to six tries, keeping the last roll
+     */
+    public static PieceSource history(long seed) {
+        return new PieceSource(new Random(seed)) {
+            private static final int TRIES = 6;
+            private final int[] history = new int[4];
+
+            {
+                restart();
+            }
+
+            @Override
+            protected int draw() {
+                int type = 0;
+                for(int t = 0; t < TRIES; t++) {
+                    type = random.nextInt(NUM_TYPES);
+                    boolean recent = false;
+                    for(int h : history)
+                        recent|=h == type;
+                    if(!recent)
+                        break;
+                }
+                System.arraycopy(history, 0, history, 1, history.length - 1);
+                history[0] = type;
+                return type;
+            }
+
+            @Override
+            protected void restart() {
+                // start as if the dogs were just dealt, so games don't open with one
+                for(int i = 0; i < history.length; i++)
+                    history[i] = i % 2 == 0 ? 5 : 6;
+            }
+        };
+    }
+
+    /**
+     * Randomizer by name: uniform, bag or history
+     */
+    public static PieceSource forName(String name, long seed) {
+        switch(name) {
+            case "uniform": return uniform(seed);
+            case "bag": return bag(seed);
+            case "history": return history(seed);
+            default: throw new IllegalArgumentException("Unknown piece source: " + name);
+        }
+    }
+
+    /**
+     * Deals exactly types[0..length), in order. Reseeding starts it over
+     * @throws IllegalStateException (from next) once they run out
+     */
+    public static PieceSource sequence(byte[] types, int length) {
+        return new PieceSource(null) {
+            private int dealt;
+
+            @Override
+            protected int draw() {
+                if(dealt >= length)
+                    throw new IllegalStateException("Piece sequence ran out after " + length + " pieces");
+                return types[dealt++];
+            }
+
+            @Override
+            protected void restart() { dealt = 0; }
+        };
+    }
+
+    /**
+     * Deals the first length pieces of source from a byte[] drawn when it's made and on every reseed, before the
+     * game starts, then carries on from source itself, so the sequence is exactly source's. All length pieces are
+     * drawn even if the game ends sooner, so length should be about a game's length
+     */
+    public static PieceSource pregenerated(PieceSource source, int length) {
+        return new Pregenerated(source, length);
+    }
+
+    private static final class Pregenerated extends PieceSource {
+        private final PieceSource source;
+        private final byte[] types;
+        private int dealt;
+
+        Pregenerated(PieceSource source, int length) {
+            super(source.random);
+            this.source = source;
+            types = new byte[Math.max(0, length)];
+            restart();
+        }
+
+        @Override
+        protected int draw() {
+            if(dealt == types.length)
+                return source.nextType();
+            return types[dealt++];
+        }
+
+        @Override
+        public void reseed(long seed) {
+            source.reseed(seed);
+            super.reseed(seed);
+        }
+
+        @Override
+        protected void restart() {
+            for(int i = 0; i < types.length; i++)
+                types[i] = (byte) source.nextType();
+            dealt = 0;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package assignment;
+
+import java.util.*;
+
+/**
+ * LRU cache of a greedy brain's best placement, keyed by the board's surface.
+ *
+ * On a board with no holes that's low enough that every placement is a straight drop from spawn,
+ * the best placement under a heuristic depends only on the piece and the column heights relative to
+ * the lowest column (shifting the whole surface up or down changes every candidate's score by the
+ * same amount). The one exception is BoardHeuristics' panic mode, which switches on at an absolute
+ * height, so the key also records how close the surface is to it. Boards that don't qualify get
+ * no key and are evaluated as usual.
+ *
+ * Each cache should hold results of a single scoring function. Thread safe.
+ */
+final class PlacementCache<V> {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long BYTES_PER_ENTRY = 120; // map entry, key object and value, excluding the heights array
+
+    private final LinkedHashMap<Key, V> map;
+    private long hits;
+    private long misses;
+    private long heightBytes; // heights arrays of the current entries
+
+    /**
+     * Surface of a board: piece, board height and top space, column heights relative to the lowest column,
+     * distance to panic height, and a caller-defined variant (anything else the cached value depends on)
+     */
+    static final class Key {
+        private final int piece;
+        private final int height;
+        private final int topSpace;
+        private final int panic;
+        private final int variant;
+        private final short[] heights;
+        private final int hash;
+
+        Key(int piece, int height, int topSpace, int panic, int variant, short[] heights) {
+            this.piece = piece;
+            this.height = height;
+            this.topSpace = topSpace;
+            this.panic = panic;
+            this.variant = variant;
+            this.heights = heights;
+            hash = Objects.hash(piece, height, topSpace, panic, variant) * 31 + Arrays.hashCode(heights);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Key)) return false;
+            Key k = (Key) other;
+            return hash == k.hash && piece == k.piece && height == k.height && topSpace == k.topSpace && panic == k.panic
+                && variant == k.variant && Arrays.equals(heights, k.heights);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+
+    public PlacementCache(int capacity) {
+        map = new LinkedHashMap<Key, V>(16, 0.75f, true) { // access order, so the eldest is least recently used
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                if(size() <= capacity)
+                    return false;
+                heightBytes-=2L * eldest.getKey().heights.length;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Key for board and its current piece, or null if placements on it aren't all straight drops
+     * (holes, a surface reaching the spawn rows, or no current piece)
+     * @param topSpace spawn rows at the top of b
+     */
+    public static Key key(Board b, int topSpace, int variant) {
+        Piece p = b.getCurrentPiece();
+        if(p == null || b.getMaxHeight() > b.getHeight() - topSpace || BoardHeuristics.holes(b) > 0)
+            return null;
+        int min = Integer.MAX_VALUE;
+        for(int x = 0; x < b.getWidth(); x++)
+            min = Math.min(min, b.getColumnHeight(x));
+        short[] heights = new short[b.getWidth()];
+        for(int x = 0; x < heights.length; x++)
+            heights[x] = (short) (b.getColumnHeight(x) - min);
+
+        // a placement moves the max height by at most 4 either way (stacking or clearing),
+        // so outside that distance every candidate is on the same side of the panic threshold
+        int panic = Math.max(-5, Math.min(4, (3 * b.getHeight()) / 4 - b.getMaxHeight()));
+        return new Key(p.getType().ordinal() * 4 + p.getRotationIndex(), b.getHeight(), topSpace, panic, variant, heights);
+    }
+
+    /**
+     * Cached placement for key, or null (counted as a miss)
+     */
+    public synchronized V get(Key key) {
+        V v = map.get(key);
+        if(v == null)
+            misses++;
+        else
+            hits++;
+        return v;
+    }
+
+    public synchronized void put(Key key, V value) {
+        if(map.put(key, value) == null)
+            heightBytes+=2L * key.heights.length;
+    }
+
+    public synchronized int size() { return map.size(); }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+
+    /**
+     * Rough heap used by the cached entries
+     */
+    public synchronized long getEstimatedBytes() {
+        return map.size() * BYTES_PER_ENTRY + heightBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "entries: " + map.size() + ", hit rate: " + getHitRate() + ", ~" + (getEstimatedBytes() >> 10) + "KB";
+    }
+}
@@ -0,0 +1,98 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.*;
+
+/**
+ * Enumerates every placement of a board's current piece: each rotation, slid to each column
+ * it can reach, then dropped. Like QState's action enumeration, but working on any board and
+ * returning the resulting boards, with duplicate results (e.g. a rotated square) removed.
+ */
+final class PlacementEnumerator {
+    private PlacementEnumerator() {}
+
+    /**
+     * One way to place the current piece
+     */
+    static class Placement {
+        public final List<Board.Action> moves; // ends with DROP
+        public final Board board; // board after the drop
+
+        Placement(List<Board.Action> moves, Board board) {
+            this.moves = moves;
+            this.board = board;
+        }
+    }
+
+    private static final Board.Action[][] ROTATIONS = new Board.Action[][] {
+        {},
+        { Board.Action.CLOCKWISE },
+        { Board.Action.CLOCKWISE, Board.Action.CLOCKWISE },
+        { Board.Action.COUNTERCLOCKWISE }
+    };
+
+    /**
+     * All distinct placements of the current piece
+     * @param b board with a current piece (not mutated)
+     * @param zobrist used to drop placements that give an identical board, may be null to keep all
+     * @return placements, empty if there is no current piece
+     */
+    public static List<Placement> enumerate(Board b, Zobrist zobrist) {
+        List<Placement> placements = new ArrayList<>();
+        if(b.getCurrentPiece() == null)
+            return placements;
+        Set<Long> seen = new HashSet<>();
+
+        for(Board.Action[] rotation : ROTATIONS) {
+            Board rotated = b.testMove(Board.Action.NOTHING);
+            List<Board.Action> moves = new ArrayList<>();
+            boolean rotatedOk = true;
+            for(Board.Action act : rotation) {
+                moves.add(act);
+                if(rotated.move(act) != Board.Result.SUCCESS)
+                    rotatedOk = false;
+            }
+            if(!rotatedOk)
+                continue;
+
+            addPlacement(placements, seen, zobrist, rotated, moves);
+            slide(placements, seen, zobrist, rotated, moves, Board.Action.LEFT);
+            slide(placements, seen, zobrist, rotated, moves, Board.Action.RIGHT);
+        }
+        return placements;
+    }
+
+    private static void slide(List<Placement> placements, Set<Long> seen, Zobrist zobrist, Board start, List<Board.Action> prefix, Board.Action dir) {
+        List<Board.Action> moves = new ArrayList<>(prefix);
+        Board shifted = start.testMove(dir);
+        while(shifted.getLastResult() == Board.Result.SUCCESS) {
+            moves.add(dir);
+            addPlacement(placements, seen, zobrist, shifted, moves);
+            shifted.move(dir);
+        }
+    }
+
+    private static void addPlacement(List<Placement> placements, Set<Long> seen, Zobrist zobrist, Board b, List<Board.Action> prefix) {
+        Board dropped = b.testMove(Board.Action.DROP);
+        if(zobrist != null && !seen.add(zobrist.key(dropped)))
+            return;
+        List<Board.Action> moves = new ArrayList<>(prefix);
+        moves.add(Board.Action.DROP);
+        placements.add(new Placement(moves, dropped));
+    }
+
+    /**
+     * Copy of b with p spawned where JTetris would spawn it
+     * @param spawnY y of the spawn position (the playable height of the board)
+     * @return the new board, or null if the piece can't spawn (game over)
+     */
+    public static Board spawn(Board b, Piece p, int spawnY) {
+        Board next = b.testMove(Board.Action.NOTHING);
+        try {
+            next.nextPiece(p, new Point(b.getWidth() / 2 - p.getWidth() / 2, spawnY));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return next;
+    }
+}
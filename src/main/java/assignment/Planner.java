@@ -0,0 +1,15 @@
+package assignment;
+
+import java.util.List;
+
+/**
+ * Something that can plan a whole placement at once, which lets SpeculativeBrain run it ahead of time
+ * on a background thread.
+ */
+public interface Planner {
+
+    /**
+     * Moves placing the board's current piece (ending with DROP). Should not mutate the given board.
+     */
+    List<Board.Action> plan(Board board);
+}
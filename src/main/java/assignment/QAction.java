@@ -0,0 +1,49 @@
+package assignment;
+
+import java.util.*;
+
+/**
+ * Store series of steps to place piece and Q value for that action
+ */
+class QAction implements Comparable<QAction> {
+    private List<Board.Action> moves;
+    private double qValue;
+    private int id; // index in QTable's action list, used to save replay memory
+
+    public QAction(List<Board.Action> movesIn) {
+        moves = movesIn;
+        qValue = Math.random(); // could also initalize to 0 (did it for testing to see what states were reached)
+    }
+
+    /**
+     * Run sequence of moves of this QAction on a board
+     */
+    public void applyMoves(Board b) {
+        for(int i = 0; i < moves.size(); i++)
+            b.move(moves.get(i));
+    }
+
+    public List<Board.Action> getMoves() { return moves; }
+    public int getId() { return id; }
+    public void setId(int x) { id = x; }
+    public double getValue() { return qValue; }
+    public void setValue(double x) { qValue = x; }
+    public void addValue(double x) { qValue+=x; }
+
+    @Override
+    public int compareTo(QAction q) {
+        double d = (getValue() - q.getValue());
+        if(d > 0) return 1;
+        else if(d == 0) return 0;
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QAction q = (QAction) o;
+        return getValue() == q.getValue();
+    }
+
+}
@@ -0,0 +1,262 @@
+package assignment;
+
+import java.util.*;
+import java.awt.Point;
+
+/**
+ * Object containing representing the encoded state of a board and containing the possible actions at this board
+ */
+class QState {
+    public static final int MAX_VALUES = 40;
+
+    private List<QAction> actions; // enumeration order, matches saved table lines
+    private List<QAction> ranked; // same actions, re-sorted by value in getMaxAction
+    private TetrisBoard baseBoard;
+    private int boardWidth;
+    private int boardHeight;
+    private int stateWidth;
+    private int stateHeight;
+    private int stateWidthShrink;
+    private int stateHeightShrink;
+    private int topSpace;
+    private int idx;
+
+    /**
+     * Same as QTable initialization but iterates and creates all possible actions (instead of states)
+     */
+    public QState(int encoding, int boardWidthIn, int boardHeightIn, int stateWidthShrinkIn, int stateHeightShrinkIn, int boardTopSpace) { 
+        boardWidth = boardWidthIn;
+        boardHeight = boardHeightIn;
+        stateWidthShrink = stateWidthShrinkIn;
+        stateHeightShrink = stateHeightShrinkIn;
+        stateWidth = boardWidth / stateWidthShrink;
+        stateHeight = (boardHeight+1) / stateHeightShrink;
+        topSpace = boardTopSpace;
+        idx = encoding;
+        baseBoard = decode(encoding);
+        actions = new ArrayList<>();
+        enumerateActions();
+        ranked = new ArrayList<>(actions);
+    }
+
+    // for testing
+    public int getIdx() { return idx; }
+
+    /**
+     * Decode from integer to a board using scaling and base conversions. Reverses encoding
+     */
+    public TetrisBoard decode(int encoding) {
+        Piece nextPiece = PieceSource.PIECES[encoding % QTable.NUM_PIECES];
+        encoding/=QTable.NUM_PIECES;
+
+        Piece[][] grid = new Piece[boardHeight+topSpace][boardWidth];
+        int[] colHeights = toBase(encoding,stateHeight);
+        
+        for(int x = 0; x < boardWidth; x+=stateWidthShrink) {
+            for(int i = x; i < boardWidth && i < x + stateWidthShrink; i++)
+                for(int y = 0; y < stateHeightShrink * colHeights[x/stateWidthShrink]; y++)
+                    grid[y][i] = QTable.dummyPiece;
+        }
+
+        TetrisBoard board = new TetrisBoard(grid);
+        board.nextPiece(nextPiece, new Point(board.getWidth() / 2 - nextPiece.getWidth() / 2, boardHeight));
+        return board;
+    }
+
+    /**
+     * Decodes encoding into array of column heights to fill into board using base conversions
+     */
+    private int[] toBase(int encoding, int h) {
+        String s = Integer.toString(encoding, h);
+
+        int[] out = new int[stateWidth];
+        int i;
+        for(i = 0; i < stateWidth - s.length(); i++)
+            out[i] = 0;
+
+        for(int j = 0; j < s.length(); j++)
+            out[i+j] = Integer.parseInt(s.substring(j, j+1), h);
+
+        return out;
+
+    }
+
+    /**
+     * Iterate over all possible moves at this state.
+     * Each move is a set of actions that results in one piece being placed.
+     * Similar to LameBrain's enumerateActions but with rotations
+     */
+    private void enumerateActions() {
+        for(int rotation = 0; rotation < 4; rotation++) {
+            Board testBoard;
+            List<Board.Action> moves = new ArrayList<>();
+            switch(rotation) {
+                case 1:
+                    testBoard = baseBoard.testMove(Board.Action.CLOCKWISE);
+                    moves.add(Board.Action.CLOCKWISE);
+                    break;
+                case 2:
+                    testBoard = baseBoard.testMove(Board.Action.CLOCKWISE);
+                    testBoard.move(Board.Action.CLOCKWISE);
+                    moves.add(Board.Action.CLOCKWISE);
+                    moves.add(Board.Action.CLOCKWISE);
+                    break;
+                case 3:
+                    testBoard = baseBoard.testMove(Board.Action.COUNTERCLOCKWISE);
+                    moves.add(Board.Action.COUNTERCLOCKWISE);
+                    break;
+                default:
+                    testBoard = baseBoard.testMove(Board.Action.NOTHING);
+            }
+
+            addAction(moves);
+
+            List<Board.Action> leftMoves = new ArrayList<>(moves);
+            Board left = testBoard.testMove(Board.Action.LEFT);
+            while (left.getLastResult() == Board.Result.SUCCESS) {
+                leftMoves.add(Board.Action.LEFT);
+                addAction(leftMoves);
+                left.move(Board.Action.LEFT);
+            }
+
+            List<Board.Action> rightMoves = new ArrayList<>(moves);
+            Board right = testBoard.testMove(Board.Action.RIGHT);
+            while (right.getLastResult() == Board.Result.SUCCESS) {
+                rightMoves.add(Board.Action.RIGHT);
+                addAction(rightMoves);
+                right.move(Board.Action.RIGHT);
+            }
+
+        }
+    }
+
+    /**
+     * Drops piece and adds to QAction space
+     * @param moves list of actions taken up until then (without DROP for placing the piece)
+     */
+    private void addAction(List<Board.Action> moves) {
+        List<Board.Action> copyMoves = new ArrayList<>(moves);
+        copyMoves.add(Board.Action.DROP);
+        actions.add(new QAction(copyMoves));
+    }
+
+    /**
+     * Get the best move according to the QTable
+     */
+    public QAction getMaxAction(Board b) {
+        if(b == null) {
+            return Collections.max(actions);
+        }
+        Collections.sort(ranked, Collections.reverseOrder());
+        return calcHeuristicAction(b, ranked.subList(0, Math.min(MAX_VALUES, ranked.size())));
+    }
+
+    /**
+     * Same as getMaxAction, but ranks actions by a frozen copy of the Q values without reordering this state
+     * @param values Q values indexed by QAction id
+     */
+    public QAction getMaxAction(Board b, double[] values) {
+        List<QAction> options = new ArrayList<>(actions);
+        options.sort((a1, a2) -> Double.compare(values[a2.getId()], values[a1.getId()]));
+        return calcHeuristicAction(b, options.subList(0, Math.min(MAX_VALUES, options.size())));
+    }
+
+    /**
+     * Pick random QAction from action space
+     */
+    public QAction getRandomAction(Random random) {
+        return actions.get(random.nextInt(actions.size()));
+    }
+
+    /**
+     * Get the best move according to the heuristic 
+     * @param b current board 
+     * @param cache choices by surface, shared by the states of one table
+     * @return next QAction to take
+     */
+    public QAction getHeuristicAction(Board b, PlacementCache<Integer> cache) {
+        // moves are relative to the piece's position, so that's part of the key
+        PlacementCache.Key key = b.getCurrentPiece() == null ? null : PlacementCache.key(b, topSpace, b.getCurrentPiecePosition().x * 1024 + actions.size());
+        Integer cached = key == null ? null : cache.get(key);
+        if(cached != null)
+            return actions.get(cached);
+
+        int best = calcHeuristicIndex(b, actions);
+        if(key != null && best >= 0)
+            cache.put(key, best);
+        return best < 0 ? null : actions.get(best);
+    }
+
+    /**
+     * Compare difference in board evaluation after each possible action.
+     * Choose action with best improvement in board state
+     */
+    public QAction calcHeuristicAction(Board b, List<QAction> actions) {
+        int best = calcHeuristicIndex(b, actions);
+        return best < 0 ? null : actions.get(best);
+    }
+
+    /**
+     * Position in actions of calcHeuristicAction's choice, -1 if actions is empty.
+     * Actions compare equal by Q value, so the position can't be found again by searching for the action
+     */
+    private int calcHeuristicIndex(Board b, List<QAction> actions) {
+        double r = heuristicReward(b);
+        double rMax = 0;
+        int best = -1;
+        TetrisBoard testBoard = new TetrisBoard((TetrisBoard) b); // one scratch board, reset before each action
+        for(int i = 0; i < actions.size(); i++) {
+            testBoard.copyFrom((TetrisBoard) b);
+            actions.get(i).applyMoves(testBoard);
+            double rCurr = heuristicReward(testBoard) - r;
+            if(best < 0 || rCurr > rMax) {
+                rMax = rCurr;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Use heuristic to evaluate how good a board is (see BoardHeuristics)
+     */
+    public double heuristicReward(Board b) {
+        return BoardHeuristics.reward(b);
+    }
+
+    /**
+     * Load a line containing Q values for each action for this state seperated by whitespace
+     */
+    public void loadLine(String line) {
+        String[] values = line.trim().split("\\s+");
+        if(values.length != actions.size()) {
+            System.err.println("Unequal action spaces during loading");
+            return;
+        }
+        for(int i = 0; i < values.length; i++)
+            actions.get(i).setValue(Double.parseDouble(values[i]));
+    }
+    
+    /**
+     * Convert state to string of action values (for saving weights)
+     */
+    public String asString() {
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < actions.size(); i++)
+            s.append(actions.get(i).getValue()).append(' ');
+        return s.append('\n').toString();
+    }
+
+    public int numActions() { return actions.size(); }
+
+    /**
+     * Give each action its position in the table-wide action list
+     */
+    public void assignIds(List<QAction> allActions) {
+        for(QAction a : actions) {
+            a.setId(allActions.size());
+            allActions.add(a);
+        }
+    }
+
+}
@@ -0,0 +1,492 @@
+package assignment;
+
+import java.io.*;
+import java.util.*;
+import java.awt.Point;
+
+import assignment.Piece.PieceType;
+
+/**
+ * Table storing and computing Q values
+ */
+class QTable {
+    // piece information for simulation
+    public static final int NUM_PIECES = PieceSource.NUM_TYPES; // states are encoded by index in PieceSource.PIECES
+    public static final Piece dummyPiece = new TetrisPiece(PieceType.SQUARE);
+
+    // reward specs
+    public static final double GAME_OVER_PENALTY = -200.0;
+    public static final double DROP_REWARD = 0.01;
+    public static final double ROWS_CLEAR_REWARD = 1.0;
+    public static final double MILESTONE_REWARD_FREQ = 100.0;
+    public static final double MILESTONE_REWARD = 1.0;
+    public static final double HEURISTIC_REWARD = 1.0;
+
+    // most pooled surfaces a table may have, about 15 times the default 10x20 table. Every state holds a board
+    // and its actions, so more won't fit in memory anyway; large boards need bigger shrink factors
+    public static final int MAX_SURFACES = 1 << 18;
+
+    private List<QState> qTable; // Q Table (state, action)
+    // state: combination of col heights and starting piece
+    // action: series of steps to directly place piece
+    private List<QAction> allActions; // every action in table order, indexed by QAction id
+
+    // memory specs
+    private Queue<Memory> memory;
+    private int replaySize;
+    private int maxMemorySize;
+
+    // seeded so a resumed run draws the same pieces and explorations it would have without stopping
+    private Random random;
+
+    // hyperparams for training (defaults and descriptions in TrainingConfig)
+    private double alpha;
+    private double gamma;
+    private double epsilon;
+    private double minEpsilon;
+    private double epsilonAnnealRate;
+    private double epsilonAgent;
+    private double minAgent;
+    private double agentAnnealRate;
+
+    // TD error stats from the most recent trainTable pass
+    private double tdErrorMean;
+    private double tdErrorVariance;
+
+    // board and state specs
+    private int boardWidth;
+    private int boardHeight;
+    private int stateWidth;
+    private int stateHeight;
+    private int stateWidthShrink;
+    private int stateHeightShrink;
+    private int topSpace;
+    private int numSurfaces; // stateHeight^stateWidth
+
+    // getHeuristicAction's choice by surface, shared by every state of this table (all states of a piece enumerate
+    // the same moves, since the piece spawns above every pooled surface). Only the training thread uses it
+    private final PlacementCache<Integer> heuristicCache = new PlacementCache<>(PlacementCache.DEFAULT_CAPACITY);
+
+    /**
+     * Initializes all states for given input
+     * @param boardWidthIn width of board
+     * @param boardHeightIn height of board
+     * @param stateWidthShrinkIn pooling factor for shrinking board width into states
+     * @param stateHeightShrinkIn pooling factor for shrinking board height into states
+     * @param boardTopSpace amount of top space board has (default 4)
+     */
+    public QTable(int boardWidthIn, int boardHeightIn, int stateWidthShrinkIn, int stateHeightShrinkIn, int boardTopSpace) {
+        this(TrainingConfig.forBoard(boardWidthIn, boardHeightIn, stateWidthShrinkIn, stateHeightShrinkIn, boardTopSpace));
+    }
+
+    /**
+     * Initializes all states with dimensions and hyperparams taken from config
+     */
+    public QTable(TrainingConfig config) {
+        boardWidth = config.boardWidth;
+        boardHeight = config.boardHeight;
+        topSpace = config.topSpace;
+        stateWidthShrink = config.stateWidthShrink;
+        stateHeightShrink = config.stateHeightShrink;
+        stateWidth = boardWidth / stateWidthShrink;
+        stateHeight = (boardHeight+1) / stateHeightShrink;
+        numSurfaces = numSurfaces(stateHeight, stateWidth);
+
+        alpha = config.alpha;
+        gamma = config.gamma;
+        epsilon = config.epsilon;
+        minEpsilon = config.minEpsilon;
+        epsilonAnnealRate = config.epsilonAnnealRate;
+        epsilonAgent = config.epsilonAgent;
+        minAgent = config.minAgent;
+        agentAnnealRate = config.agentAnnealRate;
+        replaySize = config.replaySize;
+        maxMemorySize = config.maxMemorySize;
+
+        qTable = new ArrayList<>();
+        memory = new ArrayDeque<>();
+        random = config.newRandom();
+        for(int i = 0; i < numSurfaces; i++)
+            for(int pType = 0; pType < NUM_PIECES; pType++)
+                qTable.add(new QState(NUM_PIECES * i + pType,boardWidth,boardHeight,stateWidthShrink,stateHeightShrink,topSpace));
+
+        allActions = new ArrayList<>();
+        for(QState s : qTable)
+            s.assignIds(allActions);
+    }
+
+    /**
+     * Number of pooled surfaces a table encodes, stateHeight^stateWidth, without overflowing on large boards
+     * @throws IllegalArgumentException if it's over MAX_SURFACES
+     */
+    static int numSurfaces(int stateHeight, int stateWidth) {
+        long n = 1;
+        for(int i = 0; i < stateWidth; i++) {
+            n*=stateHeight;
+            if(n > MAX_SURFACES)
+                throw new IllegalArgumentException("A " + stateWidth + "x" + stateHeight + " state space has more than "
+                    + MAX_SURFACES + " surfaces, use larger stateWidthShrink/stateHeightShrink");
+        }
+        return (int) n;
+    }
+
+    /**
+     * Simulates one training game with epsilon-greedy policy for actions.
+     * Records events in dynamic memory
+     * @return score: number of placed pieces it survived for
+     */
+    public int trainOneGame() {
+        return trainOneGame(null);
+    }
+
+    /**
+     * Same as trainOneGame, logging the game into recorder if it isn't null
+     * @param recorder fresh recorder for this game, ended when the game is over
+     */
+    public int trainOneGame(GameRecorder recorder) {
+        Game game = newGame(random);
+        if(recorder != null)
+            game.record(recorder);
+        TetrisBoard b = game.getBoard();
+        QState s = encode(b);
+
+        double prevScore = s.heuristicReward(b);
+        int counter = 0;
+        while(true) {
+            QAction a;
+            double e = random.nextDouble();
+            if(e < epsilon) { // explore
+                double e2 = random.nextDouble();
+                if(e2 < epsilonAgent)
+                    a = s.getHeuristicAction(b, heuristicCache);
+                else
+                    a = s.getRandomAction(random);
+            }
+            else // exploit
+                a = s.getMaxAction(b);
+            game.place(a.getMoves()); // the game drops the piece if the moves don't and spawns the next one
+            counter++;
+
+            // calculate rewards
+            double newScore = s.heuristicReward(b);
+            double r = HEURISTIC_REWARD * (newScore - prevScore) + ROWS_CLEAR_REWARD * (b.getRowsCleared() * b.getRowsCleared()) * b.getWidth() + DROP_REWARD;
+            prevScore = newScore;
+            if(counter % MILESTONE_REWARD_FREQ == 0)
+                r+=MILESTONE_REWARD*(counter/MILESTONE_REWARD_FREQ);
+
+            // get next state and add to memory
+            if(game.isOver()) {
+                addMemory(null, a, r);
+                break;
+            }
+
+            QState sPrime = encode(b);
+            QAction aPrime = sPrime.getMaxAction(b);
+            addMemory(aPrime, a, r);
+            s = sPrime;
+        }
+        if(recorder != null)
+            recorder.end(game);
+        return counter;
+    }
+
+    /**
+     * Iterate over memory EPOCH times and use temporal difference (TD) learning function to update Q-values
+     * @param epochs number of iterations to train over memory for
+     */
+    public void trainTable(int epochs) {
+        if(memory.size() < replaySize) return;
+
+        // running TD error stats for this pass (Welford)
+        long n = 0;
+        double mean = 0;
+        double m2 = 0;
+        for(int e = 0; e < epochs; e++) {
+            for(Memory m : memory) {
+                QAction aPrime = m.getNextAction();
+                QAction a = m.getAction();
+                double r = m.getReward();
+
+                // TD learning
+                double tdError;
+                if(aPrime == null)
+                    tdError = r - a.getValue();
+                else
+                    tdError = r + gamma * aPrime.getValue() - a.getValue();
+                a.addValue(alpha * tdError);
+
+                n++;
+                double delta = tdError - mean;
+                mean+=delta / n;
+                m2+=delta * (tdError - mean);
+            }
+        }
+        tdErrorMean = mean;
+        tdErrorVariance = n > 1 ? m2 / (n - 1) : 0;
+        // update epsilon
+        epsilon = Math.max(minEpsilon, epsilon - epsilonAnnealRate);
+        epsilonAgent = Math.max(minAgent, epsilonAgent - agentAnnealRate);
+    }
+
+    /**
+     * Simulates one testing game with choosing actions w/ max Q values
+     * @return score: number of placed pieces it survived for
+     */
+    public int testOneGame() {
+        Game game = newGame(random);
+        while(!game.isOver()) {
+            QAction a = encode(game.getBoard()).getMaxAction(game.getBoard());
+            if(!game.place(a.getMoves()))
+                return -1; // if invalid move end game (assert will test)
+        }
+        return game.getPiecesPlaced();
+    }
+
+    /**
+     * Same as testOneGame, but picks actions using a frozen copy of the Q values and its own RNG.
+     * Doesn't mutate the table, so it can run on other threads while training continues
+     * @param values Q values indexed by QAction id (from snapshotValues)
+     * @param random piece generator for this game
+     * @return score: number of placed pieces it survived for
+     */
+    public int evaluateGame(double[] values, Random random) {
+        Game game = newGame(random);
+        while(!game.isOver())
+            game.place(encode(game.getBoard()).getMaxAction(game.getBoard(), values).getMoves());
+        return game.getPiecesPlaced();
+    }
+
+    /**
+     * Gets a sequence of actions to take with maximum Q values given input board
+     */
+    public List<Board.Action> runTable(Board b) {
+        if(b.getCurrentPiece() == null)
+            return Arrays.asList(Board.Action.NOTHING);
+        if(!b.getCurrentPiecePosition().equals(new Point(b.getWidth() / 2 - b.getCurrentPiece().getWidth() / 2, boardHeight)))
+            return Arrays.asList(Board.Action.DROP); // if piece not in spawn position, QTable invalid so just drop
+
+        QState s = encode(b);
+        QAction a = s.getMaxAction(b);
+        return a.getMoves();
+    }
+
+    /**
+     * Create memory object and add it to dynamic memory queue.
+     * If memory is too large it removes first seen value
+     * @param aPrime best action at next state
+     * @param a action at current state
+     * @param r reward for the action
+     */
+    private void addMemory(QAction aPrime, QAction a, double r) {
+        memory.add(new Memory(aPrime, a, r));
+        if(memory.size() > maxMemorySize)
+            memory.poll();
+    }
+
+    /**
+     * Testing method for checking if memory stays in specified bounds
+     */
+    public boolean checkMemoryInBounds() { return memory.size() <= maxMemorySize; }
+
+    /**
+     * New game on this table's board size, drawing pieces from random
+     */
+    private Game newGame(Random random) {
+        return new Game(boardWidth, boardHeight, topSpace, PieceSource.uniform(random));
+    }
+
+    /**
+     * Encode the input board into a integer which is associated with a state.
+     * Uses board column heights that are shrunk down on height and pooled over width.
+     * Encodes pooled heights into using base conversions and scale by pFactor
+     * @param b input board
+     * @return QState associated with that encoded integer
+     */
+    public QState encode(Board b) {
+        int pFactor = getPieceTypeEncoding(b);
+        
+        int encoding = 0;
+        for(int x = 0; x < boardWidth; x+=stateWidthShrink) {
+            int maxCol = 0;
+            for(int i = x; i < boardWidth && i < x + stateWidthShrink; i++)
+                maxCol = Math.max(maxCol, b.getColumnHeight(i));
+            // one base stateHeight digit per pooled column, most significant first (same as decode's toBase);
+            // columns reaching into the top space share the highest digit
+            encoding = encoding * stateHeight + Math.min(maxCol / stateHeightShrink, stateHeight - 1);
+        }
+        
+        int idx = NUM_PIECES * encoding + pFactor;
+        return qTable.get(idx);
+    }
+
+    /**
+     * Convert the current piece into a value from [0,7) for encoding scaling
+     */
+    private int getPieceTypeEncoding(Board b) {
+        PieceType p = b.getCurrentPiece().getType();
+        switch(p) {
+            case STICK: return 0;
+            case SQUARE: return 1;
+            case T: return 2;
+            case LEFT_L: return 3;
+            case RIGHT_L: return 4;
+            case LEFT_DOG: return 5;
+            case RIGHT_DOG: return 6;
+            default: // never will happen
+                System.err.println("Invalid piecetype");
+                return -1;
+        }
+    }
+
+    /**
+     * Read Q value weights file and update Q Table values with these new weights 
+     */
+    public void loadTable(String filePath) {
+        try (Scanner scanner = new Scanner(new File(filePath))) {
+            for(int i = 0; i < numSurfaces; i++) {
+                for(int pType = 0; pType < NUM_PIECES; pType++) {
+                    String line = scanner.nextLine();
+                    qTable.get(i*NUM_PIECES + pType).loadLine(line);
+                }
+            }
+            if(scanner.hasNextLine()) {
+                System.out.println(scanner.nextLine());
+                throw new NoSuchElementException();
+            }
+        } catch (NoSuchElementException e) {
+            System.err.println("Loaded file doesn't match dimensions of board, not applicable, using default values");
+            qTable = new ArrayList<>();
+        } catch (FileNotFoundException e) {
+            System.err.println("Loaded file: "+filePath+" not found, using default values");
+        }
+    }
+    
+    /**
+     * Write Q values into a file for weights storage and future loading
+     */
+    public void saveTable(String filePath) {
+        double[] values = new double[numValues()];
+        snapshotValues(values);
+        try {
+            CheckpointWriter.writeTable(filePath, values, getActionCounts());
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Total number of Q values across all states
+     */
+    public int numValues() { return allActions.size(); }
+
+    public int maxMemorySize() { return maxMemorySize; }
+
+    // training stats for telemetry
+    public int getMemorySize() { return memory.size(); }
+    public double getEpsilon() { return epsilon; }
+    public double getEpsilonAgent() { return epsilonAgent; }
+    public double getTdErrorMean() { return tdErrorMean; }
+    public double getTdErrorVariance() { return tdErrorVariance; }
+    public PlacementCache<Integer> getHeuristicCache() { return heuristicCache; }
+
+    /**
+     * Number of actions (Q values) in each state, in table order
+     */
+    public int[] getActionCounts() {
+        int[] counts = new int[qTable.size()];
+        for(int i = 0; i < counts.length; i++)
+            counts[i] = qTable.get(i).numActions();
+        return counts;
+    }
+
+    /**
+     * Copy every Q value into dst (state by state) so it can be saved without holding up training
+     * @param dst array of at least numValues() length
+     */
+    public void snapshotValues(double[] dst) {
+        for(int i = 0; i < allActions.size(); i++)
+            dst[i] = allActions.get(i).getValue();
+    }
+
+    /**
+     * Copy the full learner state (values, exploration rates, replay memory, RNG) into a reusable snapshot
+     * @param dst snapshot sized by numValues() and maxMemorySize()
+     * @param game index of the last finished training game
+     */
+    public void snapshot(TrainingSnapshot dst, long game) {
+        dst.boardWidth = boardWidth;
+        dst.boardHeight = boardHeight;
+        dst.stateWidthShrink = stateWidthShrink;
+        dst.stateHeightShrink = stateHeightShrink;
+        dst.topSpace = topSpace;
+        dst.game = game;
+        dst.epsilon = epsilon;
+        dst.epsilonAgent = epsilonAgent;
+        dst.rngState = serializeRandom(random);
+        snapshotValues(dst.values);
+
+        int i = 0;
+        for(Memory m : memory) {
+            dst.memoryActions[i] = m.getAction().getId();
+            dst.memoryNextActions[i] = m.getNextAction() == null ? -1 : m.getNextAction().getId();
+            dst.memoryRewards[i] = m.getReward();
+            i++;
+        }
+        dst.memorySize = i;
+    }
+
+    /**
+     * Restore the learner state from a binary training checkpoint
+     * @return index of the last game played before the checkpoint, or -1 if it couldn't be loaded
+     */
+    public long loadCheckpoint(String filePath) {
+        TrainingSnapshot s;
+        try (InputStream in = new FileInputStream(filePath)) {
+            s = TrainingSnapshot.readFrom(in);
+        } catch (FileNotFoundException e) {
+            System.err.println("Loaded file: "+filePath+" not found");
+            return -1;
+        } catch (IOException e) {
+            System.err.println("Loaded checkpoint is corrupt ("+e.getMessage()+")");
+            return -1;
+        }
+
+        if(s.boardWidth != boardWidth || s.boardHeight != boardHeight || s.stateWidthShrink != stateWidthShrink
+                || s.stateHeightShrink != stateHeightShrink || s.topSpace != topSpace || s.values.length != allActions.size()) {
+            System.err.println("Loaded checkpoint doesn't match dimensions of board, not applicable");
+            return -1;
+        }
+
+        for(int i = 0; i < s.values.length; i++)
+            allActions.get(i).setValue(s.values[i]);
+        memory.clear();
+        for(int i = 0; i < s.memorySize; i++) {
+            QAction aPrime = s.memoryNextActions[i] < 0 ? null : allActions.get(s.memoryNextActions[i]);
+            memory.add(new Memory(aPrime, allActions.get(s.memoryActions[i]), s.memoryRewards[i]));
+        }
+        epsilon = s.epsilon;
+        epsilonAgent = s.epsilonAgent;
+        random = deserializeRandom(s.rngState);
+        return s.game;
+    }
+
+    // java.util.Random is Serializable, which is the only way to capture its seed exactly
+    private static byte[] serializeRandom(Random r) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(r);
+        } catch (IOException e) { // never happens for an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Random deserializeRandom(byte[] state) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+            return (Random) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Couldn't restore RNG state, reseeding");
+            return new Random();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Brain that runs a Planner on a background thread so planning overlaps with play.
+ *
+ * As soon as a piece's plan is known, the board it leads to is predicted and the next piece is planned
+ * speculatively for each of the 7 piece types while the game is still executing the current moves.
+ * When the next piece spawns its plan is usually ready and nextMove only reads from the queue;
+ * if the board doesn't match any prediction (e.g. a new game) the piece is planned on demand.
+ *
+ * The planner is only ever called from the planning thread, one plan at a time, so it needn't be thread safe.
+ */
+public class SpeculativeBrain implements Brain {
+    private final Planner planner;
+    private final boolean waitForPlans;
+    private final ExecutorService executor;
+
+    // speculative plans for the next piece, indexed by piece type ordinal (null where the piece can't spawn)
+    private final Board[] predicted;
+    private final Future<?>[] speculative;
+
+    private Future<List<Board.Action>> pending; // plan for the current piece, if not yet taken
+    private long pendingSince;
+
+    // stats
+    private long decisions;
+    private long readyHits; // speculative plan was already finished
+    private long lateHits; // speculative plan was still running
+    private long misses; // planned on demand
+    private long stalls; // NOTHING returned while waiting for a plan
+    private long waitNanos; // time nextMove spent waiting on plans
+
+    // queue for nextMove
+    private List<Board.Action> loadedMoves;
+    private int moveIdx;
+
+    /**
+     * Never blocks: nextMove returns NOTHING until the current piece's plan is ready, which suits real-time play
+     */
+    public SpeculativeBrain(Planner planner) {
+        this(planner, false);
+    }
+
+    /**
+     * @param planner planner to run in the background
+     * @param waitForPlans if true nextMove blocks until the current piece's plan is ready instead of
+     *                     returning NOTHING, for headless loops that don't advance without a move
+     */
+    public SpeculativeBrain(Planner planner, boolean waitForPlans) {
+        this.planner = planner;
+        this.waitForPlans = waitForPlans;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "speculative-planner");
+            t.setDaemon(true);
+            return t;
+        });
+        predicted = new Board[Piece.PieceType.values().length];
+        speculative = new Future<?>[predicted.length];
+        loadedMoves = new ArrayList<>();
+        moveIdx = 0;
+    }
+
+    public Board.Action nextMove(Board currentBoard) {
+        if(currentBoard.getCurrentPiece() == null)
+            return Board.Action.NOTHING;
+        if(moveIdx < loadedMoves.size())
+            return loadedMoves.get(moveIdx++);
+
+        // new piece
+        if(pending == null) {
+            pending = claim(currentBoard);
+            pendingSince = System.nanoTime();
+        }
+        if(!pending.isDone() && !waitForPlans) {
+            stalls++;
+            return Board.Action.NOTHING;
+        }
+        loadedMoves = take(pending);
+        pending = null;
+        moveIdx = 0;
+        waitNanos+=System.nanoTime() - pendingSince;
+        decisions++;
+
+        speculate(currentBoard, loadedMoves);
+        return loadedMoves.get(moveIdx++);
+    }
+
+    /**
+     * Find the speculative plan matching board and drop the others, or start planning board now
+     */
+    @SuppressWarnings("unchecked")
+    private Future<List<Board.Action>> claim(Board board) {
+        int type = board.getCurrentPiece().getType().ordinal();
+        Future<List<Board.Action>> match = null;
+        if(predicted[type] != null && predicted[type].equals(board))
+            match = (Future<List<Board.Action>>) speculative[type];
+        for(int i = 0; i < speculative.length; i++) {
+            if(speculative[i] != null && speculative[i] != match)
+                speculative[i].cancel(false);
+            speculative[i] = null;
+            predicted[i] = null;
+        }
+
+        if(match != null) {
+            if(match.isDone())
+                readyHits++;
+            else
+                lateHits++;
+            return match;
+        }
+        misses++;
+        Board copy = board.testMove(Board.Action.NOTHING);
+        return executor.submit(() -> planner.plan(copy));
+    }
+
+    /**
+     * Queue a plan for every piece that could spawn after moves are played on board
+     */
+    private void speculate(Board board, List<Board.Action> moves) {
+        Board after = board.testMove(Board.Action.NOTHING);
+        for(Board.Action act : moves)
+            after.move(act);
+        if(after.getCurrentPiece() != null)
+            return; // plan didn't place the piece, nothing to predict
+
+        int spawnY = board.getHeight() - JTetris.TOP_SPACE;
+        for(Piece p : PieceSource.PIECES) {
+            Board spawned = PlacementEnumerator.spawn(after, p, spawnY);
+            if(spawned == null)
+                continue; // game over for this piece
+            int type = p.getType().ordinal();
+            predicted[type] = spawned;
+            speculative[type] = executor.submit(() -> planner.plan(spawned));
+        }
+    }
+
+    private List<Board.Action> take(Future<List<Board.Action>> plan) {
+        try {
+            List<Board.Action> moves = plan.get();
+            if(moves != null && !moves.isEmpty())
+                return moves;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Planning failed: " + e.getCause());
+        }
+        return Collections.singletonList(Board.Action.DROP);
+    }
+
+    /**
+     * Stop the planning thread
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Number of pieces planned
+     */
+    public long getDecisions() { return decisions; }
+
+    /**
+     * Fraction of pieces whose speculative plan was finished by the time the piece spawned
+     */
+    public double getReadyRate() { return decisions == 0 ? 0 : readyHits / (double) decisions; }
+
+    /**
+     * Number of pieces that matched a speculative plan still being computed
+     */
+    public long getLateHits() { return lateHits; }
+
+    /**
+     * Number of pieces that matched no prediction and were planned on demand
+     */
+    public long getMisses() { return misses; }
+
+    /**
+     * Number of times nextMove returned NOTHING while waiting for a plan
+     */
+    public long getStalls() { return stalls; }
+
+    /**
+     * Average time from a piece spawning to its plan being ready, 0 when the speculative plan was already done
+     */
+    public double getMeanWaitNanos() { return decisions == 0 ? 0 : waitNanos / (double) decisions; }
+}
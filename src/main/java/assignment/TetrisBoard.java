@@ -11,6 +11,8 @@ import assignment.Piece.PieceType;
  * pixels. Instead, just represents the abstract 2D board.
  */
 public final class TetrisBoard implements Board {
+    private static final Point[] SQUARE_WALL_KICKS = { new Point(0, 0) }; // squares don't kick
+
     private int boardWidth;
     private int boardHeight;
 
@@ -21,11 +23,16 @@ public final class TetrisBoard implements Board {
 
     private Piece currentPiece;
     private Point currentPiecePosition;
+    private Point ownedPosition; // reused by copyFrom/dropPiece so they don't allocate
 
     private Result lastResult;
     private Action lastAction;
     private int rowsCleared;
 
+    // null while there are no listeners, so moves never pay for events nobody hears. Not carried by copies
+    private BoardListener[] listeners;
+    private int[] clearedRows; // indices for rowsCleared events, only kept while there are listeners
+
     // JTetris will use this constructor
     public TetrisBoard(int width, int height) {
         // set negative dimensions to 0, creating a board that no piece can be added to
@@ -53,27 +60,18 @@ public final class TetrisBoard implements Board {
         boardWidth = b.boardWidth;
         boardHeight = b.boardHeight;
 
-        // deep copy grid
-        grid = new Piece[boardHeight][boardWidth];
-        for(int y = 0; y < boardHeight; y++) {
-            for(int x = 0; x < boardWidth; x++) {
-                if(b.grid[y][x] == null)
-                    grid[y][x] = null;
-                else
-                    grid[y][x] = new TetrisPiece((TetrisPiece) b.grid[y][x]); // assume grid[y][x] is a TetrisPiece
-            }
-        }
+        // copy grid rows, pieces are immutable so cells are shared
+        grid = new Piece[boardHeight][];
+        for(int y = 0; y < boardHeight; y++)
+            grid[y] = Arrays.copyOf(b.grid[y], boardWidth);
 
         // shallow copy since primitives
         rowWidth = Arrays.copyOf(b.rowWidth, boardHeight);
         colHeight = Arrays.copyOf(b.colHeight, boardWidth);
         maxHeight = b.maxHeight;
 
-        if(b.currentPiece == null)
-            currentPiece = null;
-        else
-            currentPiece = new TetrisPiece((TetrisPiece) b.currentPiece); // assume currentPiece is a TetrisPiece
-        
+        currentPiece = b.currentPiece;
+
         if(b.currentPiecePosition == null)
             currentPiecePosition = null;
         else
@@ -84,6 +82,88 @@ public final class TetrisBoard implements Board {
         rowsCleared = b.rowsCleared;
     }
 
+    /**
+     * Overwrite this board's state with b's without allocating (for search brains that reuse boards).
+     * Placed pieces are immutable, so grid cells are shared rather than copied.
+     * Rows above both boards' max heights are empty in both, so only the stacks are copied
+     * @param b board with the same dimensions
+     */
+    public void copyFrom(TetrisBoard b) {
+        if(b.boardWidth != boardWidth || b.boardHeight != boardHeight)
+            throw new IllegalArgumentException("Board dimensions differ");
+
+        int rows = Math.max(maxHeight, b.maxHeight);
+        for(int y = 0; y < rows; y++)
+            System.arraycopy(b.grid[y], 0, grid[y], 0, boardWidth);
+        System.arraycopy(b.rowWidth, 0, rowWidth, 0, rows);
+        System.arraycopy(b.colHeight, 0, colHeight, 0, boardWidth);
+        maxHeight = b.maxHeight;
+
+        currentPiece = b.currentPiece;
+        if(b.currentPiecePosition == null)
+            currentPiecePosition = null;
+        else
+            currentPiecePosition = ownedPosition(b.currentPiecePosition.x, b.currentPiecePosition.y);
+
+        lastResult = b.lastResult;
+        lastAction = b.lastAction;
+        rowsCleared = b.rowsCleared;
+    }
+
+    /**
+     * Empty the board and remove the current piece, without allocating (for simulators that reuse boards)
+     */
+    public void clear() {
+        for(int y = 0; y < boardHeight; y++)
+            Arrays.fill(grid[y], null);
+        Arrays.fill(rowWidth, 0);
+        Arrays.fill(colHeight, 0);
+        maxHeight = 0;
+
+        currentPiece = null;
+        currentPiecePosition = null;
+
+        lastResult = Result.NO_PIECE;
+        lastAction = Action.NOTHING;
+        rowsCleared = 0;
+    }
+
+    /**
+     * Place p by dropping it straight down at column x, ignoring whether the column is reachable from the
+     * spawn position. Lets search brains place hypothetical pieces without simulating moves.
+     *
+     * p takes the place of the current piece, if there is one: after a successful drop the board has no
+     * current piece, as after any lock.
+     * @param x x of the lower-left corner of p's bounding box
+     * @return true if placed, false if p doesn't fit at x (this board is unchanged, current piece included)
+     */
+    public boolean dropPiece(Piece p, int x) {
+        Piece savedPiece = currentPiece;
+        Point savedPosition = currentPiecePosition;
+        // after copyFrom the position is ownedPosition itself, which is about to be reused
+        int savedX = savedPosition == null ? 0 : savedPosition.x;
+        int savedY = savedPosition == null ? 0 : savedPosition.y;
+
+        currentPiece = p;
+        currentPiecePosition = ownedPosition(x, dropHeight(p, x));
+        if(!currentPieceValid()) {
+            currentPiece = savedPiece;
+            currentPiecePosition = savedPosition == ownedPosition ? ownedPosition(savedX, savedY) : savedPosition;
+            return false;
+        }
+        placePiece();
+        lastAction = Action.DROP;
+        lastResult = Result.PLACE;
+        return true;
+    }
+
+    private Point ownedPosition(int x, int y) {
+        if(ownedPosition == null)
+            ownedPosition = new Point();
+        ownedPosition.setLocation(x, y);
+        return ownedPosition;
+    }
+
     /**
      * Testing constructor, preloads grid
      */
@@ -147,24 +227,77 @@ public final class TetrisBoard implements Board {
 
         if(!currentPieceValid()) {
             resetCurrentPiece(); // revert back to null (it should have been null beforehand)
+            fireToppedOut(p, spawnPosition);
             throw new IllegalArgumentException();
         }
+        if(listeners != null)
+            for(BoardListener l : listeners)
+                l.pieceSpawned(this, p, spawnPosition);
+    }
+
+    /**
+     * Start sending this board's events to l. Copies of this board (copy constructor, copyFrom) don't get its listeners
+     */
+    public void addListener(BoardListener l) {
+        if(listeners == null) {
+            listeners = new BoardListener[] { l };
+            clearedRows = new int[4];
+        } else {
+            listeners = Arrays.copyOf(listeners, listeners.length + 1);
+            listeners[listeners.length - 1] = l;
+        }
+    }
+
+    public void removeListener(BoardListener l) {
+        if(listeners == null)
+            return;
+        for(int i = 0; i < listeners.length; i++) {
+            if(listeners[i] == l) {
+                BoardListener[] rest = new BoardListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest.length == 0 ? null : rest;
+                if(listeners == null)
+                    clearedRows = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tell listeners the game is over, for rules the board doesn't know about (Game's lock above the playable rows)
+     */
+    void fireToppedOut(Piece p, Point position) {
+        if(listeners != null)
+            for(BoardListener l : listeners)
+                l.toppedOut(this, p, position);
     }
 
+    /**
+     * Same dimensions, placed pieces and current piece. Compares the cheap summaries (heights and row widths)
+     * first and only scans cells below the max height, everything above it is empty
+     */
     @Override
     public boolean equals(Object other) { 
         if(!(other instanceof TetrisBoard)) return false;
         TetrisBoard otherBoard = (TetrisBoard) other;
-        
-        for(int x = 0; x < boardWidth; x++)
-            for(int y = 0; y < boardHeight; y++) {
-                Piece p1 = getGridPiece(x, y);
-                Piece p2 = otherBoard.getGridPiece(x, y);
-                if(p1 == null && p2 == null)
+        if(boardWidth != otherBoard.boardWidth || boardHeight != otherBoard.boardHeight || maxHeight != otherBoard.maxHeight)
+            return false;
+        if(!Arrays.equals(colHeight, otherBoard.colHeight))
+            return false;
+
+        for(int y = 0; y < maxHeight; y++) {
+            if(rowWidth[y] != otherBoard.rowWidth[y])
+                return false;
+            for(int x = 0; x < boardWidth; x++) {
+                Piece p1 = grid[y][x];
+                Piece p2 = otherBoard.grid[y][x];
+                if(p1 == p2)
                     continue;
                 if(p1 == null || !p1.equals(p2))
                     return false;
             }
+        }
 
         // assume if current piece is null then the piece position is also null (they are linked)
         if(getCurrentPiece() == null)
@@ -442,18 +575,24 @@ public final class TetrisBoard implements Board {
     }
 
     /**
-     * Series of methods to place the current piece on grid and update states
+     * Series of methods to place the current piece on grid and update states.
+     * Costs depend on the piece and the stack under it, never on the board's size
      */
     private void placePiece() {
         updateGrid();
+        if(listeners != null)
+            for(BoardListener l : listeners)
+                l.pieceLocked(this, currentPiece, currentPiecePosition);
         clearRows();
-        updateColHeights();
+        if(listeners != null && rowsCleared > 0)
+            for(BoardListener l : listeners)
+                l.rowsCleared(this, clearedRows, rowsCleared);
         resetCurrentPiece();
     }
 
     /**
      * Adds body of current piece to grid, assumes currentPiece is valid (must be from the way it can be called).
-     * Also updates rowWidth correspondingly.
+     * Also updates rowWidth, colHeight and maxHeight for the piece's cells.
      */
     private void updateGrid() {
         Point[] pieceBody = currentPiece.getBody();
@@ -461,50 +600,63 @@ public final class TetrisBoard implements Board {
         int x;
         int y;
         for(Point point : pieceBody) {
-            x = (int) (currentPiecePosition.getX() + point.getX());
-            y = (int) (currentPiecePosition.getY() + point.getY());
+            x = currentPiecePosition.x + point.x;
+            y = currentPiecePosition.y + point.y;
             grid[y][x] = currentPiece;
             rowWidth[y]++;
+            colHeight[x] = Math.max(colHeight[x], y+1);
+            maxHeight = Math.max(maxHeight, y+1);
         }
     }
 
     /**
-     * Clears any full rows from top down. Shifts higher rows down, updates rowWidth and rowCleared
+     * Clears full rows, which can only be rows the piece just filled. Compacts the rows from the lowest full
+     * one up to maxHeight in one pass, swapping row arrays instead of copying cells, so the emptied arrays
+     * end up on top. Updates rowWidth, rowsCleared, colHeight and maxHeight
      */
     private void clearRows() {
         rowsCleared = 0;
-        for(int y = getHeight() - 1; y >= 0; y--) {
+        int lowest = -1;
+        int pieceTop = Math.min(currentPiecePosition.y + currentPiece.getHeight(), getHeight());
+        for(int y = Math.max(currentPiecePosition.y, 0); y < pieceTop; y++) {
             if(rowWidth[y] == getWidth()) {
-                for(int yAbove = y; yAbove < getHeight()-1; yAbove++) {
-                    for(int tempX = 0; tempX < getWidth(); tempX++) {
-                        grid[yAbove][tempX] = grid[yAbove+1][tempX];
-                        rowWidth[yAbove] = rowWidth[yAbove+1];
-                    }
-                }
-                for(int tempX = 0; tempX < getWidth(); tempX++) {
-                    grid[getHeight()-1][tempX] = null;
-                    rowWidth[getHeight()-1] = 0;
+                lowest = y;
+                break;
+            }
+        }
+        if(lowest < 0) return;
+
+        // rows [to, from) are always emptied arrays
+        int to = lowest;
+        for(int from = lowest; from < maxHeight; from++) {
+            if(rowWidth[from] == getWidth()) {
+                Arrays.fill(grid[from], null);
+                if(listeners != null) {
+                    if(rowsCleared == clearedRows.length)
+                        clearedRows = Arrays.copyOf(clearedRows, rowsCleared * 2);
+                    clearedRows[rowsCleared] = from;
                 }
-                
                 rowsCleared++;
+                continue;
             }
+            Piece[] row = grid[to];
+            grid[to] = grid[from];
+            grid[from] = row;
+            rowWidth[to] = rowWidth[from];
+            to++;
         }
-    }
+        for(int y = to; y < maxHeight; y++)
+            rowWidth[y] = 0;
 
-    /**
-     * Updates colHeights and maxHeight
-     */
-    private void updateColHeights() {
+        // every column had a block in each cleared row, so each one lost exactly rowsCleared rows below its
+        // top, unless its top block was in a cleared row too
         maxHeight = 0;
         for(int x = 0; x < getWidth(); x++) {
-            colHeight[x] = 0;
-            for(int y = getHeight()-1; y >= 0; y--) {
-                if(getGridPiece(x, y) != null) {
-                    colHeight[x] = y+1;
-                    break;
-                }
-            }
-            maxHeight = Math.max(maxHeight, colHeight[x]);
+            int h = colHeight[x] - rowsCleared;
+            while(h > 0 && grid[h-1][x] == null)
+                h--;
+            colHeight[x] = h;
+            maxHeight = Math.max(maxHeight, h);
         }
     }
 
@@ -516,7 +668,7 @@ public final class TetrisBoard implements Board {
      */
     private Point[] getWallKickTests(Piece p, boolean isClockwise) {
         if(p.getType() == PieceType.SQUARE)
-            return new Point[] { new Point(0, 0) };
+            return SQUARE_WALL_KICKS;
         if(p.getType() == PieceType.STICK) {
             if(isClockwise)
                 return Piece.I_CLOCKWISE_WALL_KICKS[p.getRotationIndex()];
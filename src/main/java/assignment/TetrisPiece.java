@@ -120,6 +120,14 @@ public final class TetrisPiece implements Piece {
         { 1, 0, Integer.MAX_VALUE }
     };
 
+    // one shared instance per rotation, indexed [type ordinal][rotation], so rotating never allocates
+    private final static TetrisPiece[][] ROTATED = new TetrisPiece[PieceType.values().length][4];
+    static {
+        for(PieceType type : PieceType.values())
+            for(int r = 0; r < 4; r++)
+                ROTATED[type.ordinal()][r] = new TetrisPiece(type, r);
+    }
+
     /**
      * Construct a tetris piece of the given type. The piece should be in its spawn orientation,
      * i.e., a rotation index of 0.
@@ -155,12 +163,12 @@ public final class TetrisPiece implements Piece {
 
     @Override
     public Piece clockwisePiece() {
-        return new TetrisPiece(pieceType, (rotationIndex + 1) % 4);
+        return ROTATED[pieceType.ordinal()][(rotationIndex + 1) % 4];
     }
 
     @Override
     public Piece counterclockwisePiece() {
-        return new TetrisPiece(pieceType, (rotationIndex + 3) % 4); // -1 mod 4 = 3 mod 4
+        return ROTATED[pieceType.ordinal()][(rotationIndex + 3) % 4]; // -1 mod 4 = 3 mod 4
     }
 
     @Override
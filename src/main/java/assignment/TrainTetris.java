@@ -0,0 +1,63 @@
+package assignment;
+
+import java.io.IOException;
+
+/**
+ * Headless entry point for training a QLearningBrain, no Swing involved.
+ *
+ * Usage: java assignment.TrainTetris [--config file.properties] [--resume file.ckpt] [key=value ...]
+ *
+ * Settings are applied in order, so key=value arguments override the config file.
+ * See TrainingConfig for every key and its default.
+ */
+public class TrainTetris {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        TrainingConfig config = new TrainingConfig();
+        String resumePath = null;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if(arg.equals("--help") || arg.equals("-h")) {
+                    printUsage();
+                    return;
+                } else if(arg.equals("--config") && i + 1 < args.length) {
+                    config.load(args[++i]);
+                } else if(arg.equals("--resume") && i + 1 < args.length) {
+                    resumePath = args[++i];
+                } else if(arg.contains("=")) {
+                    int eq = arg.indexOf('=');
+                    config.set(arg.substring(0, eq), arg.substring(eq + 1));
+                } else {
+                    throw new IllegalArgumentException("Unrecognized argument: " + arg);
+                }
+            }
+            config.validate();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        if(resumePath != null && !resumePath.endsWith(QLearningBrain.CHECKPOINT_EXTENSION)) {
+            System.err.println("Resume path must be a training checkpoint (" + QLearningBrain.CHECKPOINT_EXTENSION + ")");
+            System.exit(2);
+        }
+
+        System.out.print(config);
+        try {
+            new QLearningBrain(config, resumePath); // null trains from scratch, a checkpoint resumes
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java assignment.TrainTetris [--config file.properties] [--resume file" + QLearningBrain.CHECKPOINT_EXTENSION + "] [key=value ...]");
+        System.err.println("Settings (defaults):");
+        System.err.print(new TrainingConfig());
+    }
+}
@@ -0,0 +1,190 @@
+package assignment;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Every setting of a QLearningBrain training run: board and state dimensions, QTable hyperparameters,
+ * the epsilon schedule, replay sizes, training/reporting frequencies, output paths and thread counts.
+ *
+ * Defaults match the values the project has always trained with. Any field can be overridden by name
+ * from a properties file or "key=value" arguments, e.g. {@code alpha=0.05 numTrainingGames=50000}.
+ */
+class TrainingConfig implements Cloneable {
+    // settings that are divided or taken modulo by, or size arrays, pools and pooled states
+    private static final String[] POSITIVE = {
+        "boardWidth", "boardHeight", "stateWidthShrink", "stateHeightShrink", "replaySize", "maxMemorySize",
+        "printTableFreq", "saveTableFreq", "trainTableFreq", "evalFreq", "evalThreads", "recordFreq"
+    };
+    private static final String[] NON_NEGATIVE = { "topSpace", "numTrainingGames", "epochs", "evalGames" };
+
+    // board and state dims
+    public int boardWidth = JTetris.WIDTH;
+    public int boardHeight = JTetris.HEIGHT;
+    public int topSpace = JTetris.TOP_SPACE;
+    public int stateWidthShrink = 2;
+    public int stateHeightShrink = 3;
+
+    // QTable hyperparams
+    public double alpha = 0.02;
+    public double gamma = 0.9;
+    public double epsilon = 2.0; // make first 10k games all agent to build memory
+    public double minEpsilon = 0.0;
+    public double epsilonAnnealRate = 1 / 10000.0; // linear anneal over 10k games
+    public double epsilonAgent = 2.0; // of exploration, % of time using heuristic agent vs fully random
+    public double minAgent = 0.0; // keep @ all agent (random is bad)
+    public double agentAnnealRate = 1 / 10000.0; // linear anneal over 10k games
+    public int replaySize = 2000;
+    public int maxMemorySize = 20000;
+    public long seed = -1; // negative for an unseeded run
+
+    // training loop
+    public long numTrainingGames = 2000000L;
+    public int printTableFreq = 1000;
+    public int saveTableFreq = 10000;
+    public int trainTableFreq = 1;
+    public int epochs = 5;
+
+    // background evaluation
+    public int evalFreq = 1000;
+    public int evalGames = 32;
+    public int evalThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1); // leave a core for training
+    public long evalSeed = 12345L;
+
+    // output, null paths disable that output
+    public String saveFilePath = "src/main/java/assignment/qTable_";
+    public String metricsFilePath = "training_metrics.jsonl";
+    public String recordPath = null; // every recordFreq'th game is logged (GameRecorder) to recordPath + game + ".ttr"
+    public int recordFreq = 10000;
+
+    /**
+     * Default settings for the given board and state pooling
+     */
+    public static TrainingConfig forBoard(int boardWidth, int boardHeight, int stateWidthShrink, int stateHeightShrink, int topSpace) {
+        TrainingConfig c = new TrainingConfig();
+        c.boardWidth = boardWidth;
+        c.boardHeight = boardHeight;
+        c.stateWidthShrink = stateWidthShrink;
+        c.stateHeightShrink = stateHeightShrink;
+        c.topSpace = topSpace;
+        return c;
+    }
+
+    /**
+     * Set a field by name from its string form
+     * @throws IllegalArgumentException if there is no such setting or the value doesn't parse
+     */
+    public void set(String key, String value) {
+        Field f;
+        try {
+            f = TrainingConfig.class.getField(key);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown training setting: " + key);
+        }
+        String v = value.trim();
+        try {
+            if(f.getType() == int.class)
+                f.setInt(this, Integer.parseInt(v));
+            else if(f.getType() == long.class)
+                f.setLong(this, Long.parseLong(v));
+            else if(f.getType() == double.class)
+                f.setDouble(this, Double.parseDouble(v));
+            else
+                f.set(this, v.isEmpty() || v.equals("null") ? null : v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+        } catch (IllegalAccessException e) { // fields are public
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Current value of a field by name, as a string
+     */
+    public String get(String key) {
+        try {
+            return String.valueOf(TrainingConfig.class.getField(key).get(this));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Unknown training setting: " + key);
+        }
+    }
+
+    /**
+     * Apply every entry of a properties file, then validate
+     */
+    public void load(String filePath) throws IOException {
+        Properties p = new Properties();
+        try (Reader r = new FileReader(filePath)) {
+            p.load(r);
+        }
+        for(String key : p.stringPropertyNames())
+            set(key, p.getProperty(key));
+        validate();
+    }
+
+    /**
+     * Check the settings can make a training run
+     * @throws IllegalArgumentException naming the first setting out of range
+     */
+    public void validate() {
+        for(String key : POSITIVE)
+            if(Long.parseLong(get(key)) <= 0)
+                throw new IllegalArgumentException(key + " must be positive: " + get(key));
+        for(String key : NON_NEGATIVE)
+            if(Long.parseLong(get(key)) < 0)
+                throw new IllegalArgumentException(key + " can't be negative: " + get(key));
+        if(stateWidthShrink > boardWidth)
+            throw new IllegalArgumentException("stateWidthShrink can't be more than boardWidth: " + stateWidthShrink);
+        if(stateHeightShrink > boardHeight + 1)
+            throw new IllegalArgumentException("stateHeightShrink can't be more than boardHeight + 1: " + stateHeightShrink);
+    }
+
+    /**
+     * True if the named setting holds an int or long
+     */
+    public static boolean isIntegral(String key) {
+        try {
+            Class<?> type = TrainingConfig.class.getField(key).getType();
+            return type == int.class || type == long.class;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown training setting: " + key);
+        }
+    }
+
+    /**
+     * Names of every setting
+     */
+    public static List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for(Field f : TrainingConfig.class.getFields())
+            if(!Modifier.isStatic(f.getModifiers()))
+                keys.add(f.getName());
+        return keys;
+    }
+
+    /**
+     * Random generator for the run: seeded if seed >= 0
+     */
+    public Random newRandom() {
+        return seed < 0 ? new Random() : new Random(seed);
+    }
+
+    @Override
+    public TrainingConfig clone() {
+        try {
+            return (TrainingConfig) super.clone();
+        } catch (CloneNotSupportedException e) { // Cloneable
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for(String key : keys())
+            s.append(key).append('=').append(get(key)).append('\n');
+        return s.toString();
+    }
+}
@@ -0,0 +1,226 @@
+package assignment;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import javax.management.*;
+
+/**
+ * Collects training telemetry (throughput, TD error, replay occupancy, exploration rates,
+ * score distribution and time split between acting, learning and checkpointing).
+ * Each call to emit appends one JSON line to a size-rolled log file and refreshes the JMX view.
+ *
+ * Recording happens on the training thread; JMX reads the volatile published values.
+ */
+class TrainingMetrics implements TrainingMetricsMXBean {
+    public static final String OBJECT_NAME = "assignment:type=TrainingMetrics";
+    public static final long MAX_FILE_BYTES = 16L << 20; // roll the log after 16MB
+    public static final int MAX_ROLLED_FILES = 5;
+    public static final int HISTOGRAM_BUCKETS = 24; // log2 buckets, covers scores up to ~8M
+
+    private final Path logPath;
+    private Writer log;
+    private ObjectName objectName;
+
+    // current window, only touched by the training thread
+    private long windowStart;
+    private long windowGames;
+    private long windowPlacements;
+    private long[] windowHistogram;
+
+    // cumulative, written only by the training thread
+    private volatile long actingNanos;
+    private volatile long learningNanos;
+    private volatile long checkpointNanos;
+
+    // values published at the end of each window
+    private volatile long gamesPlayed;
+    private volatile long placements;
+    private volatile double gamesPerSecond;
+    private volatile double placementsPerSecond;
+    private volatile double tdErrorMean;
+    private volatile double tdErrorVariance;
+    private volatile double replayOccupancy;
+    private volatile double epsilon;
+    private volatile double epsilonAgent;
+    private volatile double heuristicCacheHitRate;
+    private volatile long heuristicCacheBytes;
+    private volatile long[] scoreHistogram;
+
+    /**
+     * @param filePath JSON-lines file to append to (null to only publish over JMX)
+     */
+    public TrainingMetrics(String filePath) {
+        logPath = filePath == null ? null : Paths.get(filePath);
+        windowHistogram = new long[HISTOGRAM_BUCKETS];
+        scoreHistogram = new long[HISTOGRAM_BUCKETS];
+        windowStart = System.nanoTime();
+        openLog();
+        register();
+    }
+
+    /**
+     * Record one finished training game
+     * @param score pieces placed in the game
+     * @param nanos time spent playing it
+     */
+    public void recordGame(int score, long nanos) {
+        windowGames++;
+        windowPlacements+=score;
+        windowHistogram[bucket(score)]++;
+        actingNanos+=nanos;
+    }
+
+    public void recordLearning(long nanos) { learningNanos+=nanos; }
+
+    public void recordCheckpoint(long nanos) { checkpointNanos+=nanos; }
+
+    /**
+     * Close the current window: publish its stats, append them to the log and start a new window
+     * @param game index of the last finished game
+     * @param q table being trained (source of TD error, replay and epsilon stats)
+     */
+    public void emit(long game, QTable q) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - windowStart) / 1e9);
+
+        gamesPlayed+=windowGames;
+        placements+=windowPlacements;
+        gamesPerSecond = windowGames / seconds;
+        placementsPerSecond = windowPlacements / seconds;
+        tdErrorMean = q.getTdErrorMean();
+        tdErrorVariance = q.getTdErrorVariance();
+        replayOccupancy = q.getMemorySize() / (double) q.maxMemorySize();
+        epsilon = q.getEpsilon();
+        epsilonAgent = q.getEpsilonAgent();
+        heuristicCacheHitRate = q.getHeuristicCache().getHitRate();
+        heuristicCacheBytes = q.getHeuristicCache().getEstimatedBytes();
+        scoreHistogram = Arrays.copyOf(windowHistogram, HISTOGRAM_BUCKETS);
+
+        writeLine(game);
+
+        windowStart = now;
+        windowGames = 0;
+        windowPlacements = 0;
+        Arrays.fill(windowHistogram, 0);
+    }
+
+    /**
+     * Flush and close the log, and remove the JMX bean
+     */
+    public void close() {
+        if(log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+            log = null;
+        }
+        if(objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                System.err.println(e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Histogram bucket for a score: 0 for 0, otherwise 1 + floor(log2(score))
+     */
+    static int bucket(int score) {
+        if(score <= 0) return 0;
+        return Math.min(HISTOGRAM_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(score));
+    }
+
+    private void writeLine(long game) {
+        if(log == null) return;
+        StringBuilder s = new StringBuilder(256);
+        s.append("{\"game\":").append(game)
+         .append(",\"gamesPerSec\":").append(gamesPerSecond)
+         .append(",\"placementsPerSec\":").append(placementsPerSecond)
+         .append(",\"tdErrorMean\":").append(tdErrorMean)
+         .append(",\"tdErrorVariance\":").append(tdErrorVariance)
+         .append(",\"replayOccupancy\":").append(replayOccupancy)
+         .append(",\"epsilon\":").append(epsilon)
+         .append(",\"epsilonAgent\":").append(epsilonAgent)
+         .append(",\"heuristicCacheHitRate\":").append(heuristicCacheHitRate)
+         .append(",\"heuristicCacheBytes\":").append(heuristicCacheBytes)
+         .append(",\"actingSec\":").append(getActingSeconds())
+         .append(",\"learningSec\":").append(getLearningSeconds())
+         .append(",\"checkpointSec\":").append(getCheckpointSeconds())
+         .append(",\"scoreHistogram\":[");
+        long[] hist = scoreHistogram;
+        for(int i = 0; i < hist.length; i++)
+            s.append(i == 0 ? "" : ",").append(hist[i]);
+        s.append("]}\n");
+
+        try {
+            log.write(s.toString());
+            log.flush();
+            if(Files.size(logPath) > MAX_FILE_BYTES) {
+                log.close();
+                roll();
+                openLog();
+            }
+        } catch (IOException e) {
+            System.err.println("Metrics log failed, disabling: " + e);
+            log = null;
+        }
+    }
+
+    /**
+     * Shift metrics.jsonl -> metrics.jsonl.1 -> ... dropping the oldest past MAX_ROLLED_FILES
+     */
+    private void roll() throws IOException {
+        for(int i = MAX_ROLLED_FILES - 1; i >= 1; i--) {
+            Path from = Paths.get(logPath + "." + i);
+            if(Files.exists(from))
+                Files.move(from, Paths.get(logPath + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(logPath, Paths.get(logPath + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void openLog() {
+        if(logPath == null) return;
+        try {
+            log = Files.newBufferedWriter(logPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Couldn't open metrics log " + logPath + ": " + e);
+            log = null;
+        }
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) // only one training run per JVM is exposed
+                server.unregisterMBean(name);
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            System.err.println("Couldn't register training metrics MBean: " + e);
+        }
+    }
+
+    @Override public long getGamesPlayed() { return gamesPlayed; }
+    @Override public long getPlacements() { return placements; }
+    @Override public double getGamesPerSecond() { return gamesPerSecond; }
+    @Override public double getPlacementsPerSecond() { return placementsPerSecond; }
+    @Override public double getTdErrorMean() { return tdErrorMean; }
+    @Override public double getTdErrorVariance() { return tdErrorVariance; }
+    @Override public double getReplayOccupancy() { return replayOccupancy; }
+    @Override public double getEpsilon() { return epsilon; }
+    @Override public double getEpsilonAgent() { return epsilonAgent; }
+    @Override public double getHeuristicCacheHitRate() { return heuristicCacheHitRate; }
+    @Override public long getHeuristicCacheBytes() { return heuristicCacheBytes; }
+    @Override public long[] getScoreHistogram() { return scoreHistogram.clone(); }
+    @Override public double getActingSeconds() { return actingNanos / 1e9; }
+    @Override public double getLearningSeconds() { return learningNanos / 1e9; }
+    @Override public double getCheckpointSeconds() { return checkpointNanos / 1e9; }
+}
@@ -0,0 +1,33 @@
+package assignment;
+
+/**
+ * JMX view of QLearningBrain training telemetry. Rates and the score histogram
+ * cover the most recent reporting window (printTableFreq games); times are cumulative.
+ */
+public interface TrainingMetricsMXBean {
+    long getGamesPlayed();
+    long getPlacements();
+    double getGamesPerSecond();
+    double getPlacementsPerSecond();
+
+    double getTdErrorMean();
+    double getTdErrorVariance();
+    double getReplayOccupancy();
+    double getEpsilon();
+    double getEpsilonAgent();
+
+    /**
+     * Hit rate and approximate size of the heuristic agent's placement cache (QTable.getHeuristicCache)
+     */
+    double getHeuristicCacheHitRate();
+    long getHeuristicCacheBytes();
+
+    /**
+     * Counts of scores per bucket: bucket 0 holds score 0, bucket i holds scores in [2^(i-1), 2^i)
+     */
+    long[] getScoreHistogram();
+
+    double getActingSeconds();
+    double getLearningSeconds();
+    double getCheckpointSeconds();
+}
@@ -0,0 +1,129 @@
+package assignment;
+
+import java.io.*;
+
+/**
+ * Copy of everything a QTable needs to continue training: Q values, exploration rates,
+ * replay memory, the game counter and the RNG state.
+ * Buffers are allocated once and refilled by QTable.snapshot so checkpoints stay cheap.
+ *
+ * Binary layout (big-endian, via DataOutputStream):
+ * magic, version, board/state dims, game, epsilon, epsilonAgent, rng bytes,
+ * value count + values, memory count + (action id, next action id or -1, reward) entries
+ */
+class TrainingSnapshot {
+    public static final int MAGIC = 0x51434B50; // "QCKP"
+    public static final int VERSION = 1;
+
+    // dims, checked against the table when restoring
+    int boardWidth;
+    int boardHeight;
+    int stateWidthShrink;
+    int stateHeightShrink;
+    int topSpace;
+
+    // learner state
+    long game;
+    double epsilon;
+    double epsilonAgent;
+    byte[] rngState;
+
+    double[] values;
+    int memorySize;
+    int[] memoryActions;
+    int[] memoryNextActions; // -1 for terminal transitions
+    double[] memoryRewards;
+
+    /**
+     * Allocates buffers for a table with numValues Q values and at most maxMemory replay entries
+     */
+    public TrainingSnapshot(int numValues, int maxMemory) {
+        values = new double[numValues];
+        memoryActions = new int[maxMemory];
+        memoryNextActions = new int[maxMemory];
+        memoryRewards = new double[maxMemory];
+    }
+
+    /**
+     * Write the snapshot in the binary checkpoint layout
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(boardWidth);
+        out.writeInt(boardHeight);
+        out.writeInt(stateWidthShrink);
+        out.writeInt(stateHeightShrink);
+        out.writeInt(topSpace);
+
+        out.writeLong(game);
+        out.writeDouble(epsilon);
+        out.writeDouble(epsilonAgent);
+        out.writeInt(rngState.length);
+        out.write(rngState);
+
+        out.writeInt(values.length);
+        for(double v : values)
+            out.writeDouble(v);
+
+        out.writeInt(memorySize);
+        for(int i = 0; i < memorySize; i++) {
+            out.writeInt(memoryActions[i]);
+            out.writeInt(memoryNextActions[i]);
+            out.writeDouble(memoryRewards[i]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a snapshot written by writeTo
+     * @throws IOException if the file is not a checkpoint or is truncated
+     */
+    public static TrainingSnapshot readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+        if(in.readInt() != MAGIC)
+            throw new IOException("Not a training checkpoint");
+        int version = in.readInt();
+        if(version != VERSION)
+            throw new IOException("Unsupported checkpoint version: " + version);
+
+        int boardWidth = in.readInt();
+        int boardHeight = in.readInt();
+        int stateWidthShrink = in.readInt();
+        int stateHeightShrink = in.readInt();
+        int topSpace = in.readInt();
+
+        long game = in.readLong();
+        double epsilon = in.readDouble();
+        double epsilonAgent = in.readDouble();
+        byte[] rngState = new byte[in.readInt()];
+        in.readFully(rngState);
+
+        int numValues = in.readInt();
+        double[] values = new double[numValues];
+        for(int i = 0; i < numValues; i++)
+            values[i] = in.readDouble();
+
+        int memorySize = in.readInt();
+        TrainingSnapshot s = new TrainingSnapshot(0, memorySize);
+        for(int i = 0; i < memorySize; i++) {
+            s.memoryActions[i] = in.readInt();
+            s.memoryNextActions[i] = in.readInt();
+            s.memoryRewards[i] = in.readDouble();
+        }
+
+        s.boardWidth = boardWidth;
+        s.boardHeight = boardHeight;
+        s.stateWidthShrink = stateWidthShrink;
+        s.stateHeightShrink = stateHeightShrink;
+        s.topSpace = topSpace;
+        s.game = game;
+        s.epsilon = epsilon;
+        s.epsilonAgent = epsilonAgent;
+        s.rngState = rngState;
+        s.values = values;
+        s.memorySize = memorySize;
+        return s;
+    }
+}
@@ -0,0 +1,57 @@
+package assignment;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing of the placed blocks on a board: each cell has a random 64-bit key and a
+ * board's key is the XOR of the keys of its filled cells. Piece types are ignored since
+ * they don't affect play. Boards reached by placing the same pieces in a different order
+ * get the same key, which is what the search brains use to detect transpositions.
+ */
+final class Zobrist {
+    public static final int MAX_SALT = 64; // salts are in [0, MAX_SALT)
+
+    private final int width;
+    private final int height;
+    private final long[] cellKeys; // indexed y * width + x
+    private final long[] saltKeys; // extra keys to tell apart search depths/flags for the same grid
+
+    public Zobrist(int width, int height, long seed) {
+        this.width = width;
+        this.height = height;
+        Random r = new Random(seed);
+        cellKeys = new long[width * height];
+        for(int i = 0; i < cellKeys.length; i++)
+            cellKeys[i] = r.nextLong();
+        saltKeys = new long[MAX_SALT];
+        for(int i = 0; i < saltKeys.length; i++)
+            saltKeys[i] = r.nextLong();
+    }
+
+    public boolean fits(Board b) { return b.getWidth() == width && b.getHeight() == height; }
+
+    /**
+     * Key of the board's placed blocks (ignores the current piece)
+     */
+    public long key(Board b) {
+        long key = 0;
+        for(int x = 0; x < width; x++) {
+            int top = b.getColumnHeight(x); // nothing is placed above the column height
+            for(int y = 0; y < top; y++)
+                if(b.getGrid(x, y) != null)
+                    key ^= cellKeys[y * width + x];
+        }
+        return key;
+    }
+
+    /**
+     * Mix a small integer (e.g. remaining search depth) into a key
+     * @param salt value in [0, MAX_SALT)
+     * @throws IllegalArgumentException if salt is out of range
+     */
+    public long salt(long key, int salt) {
+        if(salt < 0 || salt >= MAX_SALT)
+            throw new IllegalArgumentException("salt out of range: " + salt);
+        return key ^ saltKeys[salt];
+    }
+}
@@ -0,0 +1,130 @@
+package assignment;
+
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Allocation budgets for the hot paths: each test fails if an operation allocates more bytes per call than
+ * it's allowed, so per-move garbage can't creep back in unnoticed.
+ *
+ * Bytes are counted with ThreadMXBean.getCurrentThreadAllocatedBytes after a warmup long enough for the JIT
+ * to compile the operation, since that's how it runs in a game.
+ */
+public class AllocationTest {
+    private static final int RUNS = 10000; // calls per trial, warmup is twice that
+    private static final int TRIALS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static QTable q;
+    private static TetrisBoard board; // mid-game board with a piece at spawn
+    // keep results alive so the JIT can't drop the work (primitives get their own sink, boxing would allocate)
+    private static Object sink;
+    private static double numberSink;
+
+    @BeforeClass
+    public static void setUp() {
+        q = new QTable(10, 20, 2, 3, 4);
+        for(long seed = 1; board == null; seed++) {
+            Game game = new Game(10, 20, 4, PieceSource.uniform(seed));
+            Brain brain = new LameBrain();
+            while(!game.isOver() && game.getPiecesPlaced() < 15)
+                game.step(brain.nextMove(game.getBoard()));
+            if(!game.isOver())
+                board = new TetrisBoard(game.getBoard());
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        q = null; // a table is a few hundred MB, don't hold it while other test classes build theirs
+        board = null;
+        sink = null;
+    }
+
+    /**
+     * Fewest bytes op allocated per call over a few trials, rounded down so the odd stray allocation by
+     * the JVM during a trial doesn't count
+     */
+    private static long bytesPerOp(Runnable op, int runs) {
+        for(int i = 0; i < 2 * runs; i++)
+            op.run();
+        long best = Long.MAX_VALUE;
+        for(int trial = 0; trial < TRIALS; trial++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            for(int i = 0; i < runs; i++)
+                op.run();
+            best = Math.min(best, THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+        return best / runs;
+    }
+
+    private static void assertBudget(String name, long budget, Runnable op) {
+        assertBudget(name, budget, op, RUNS);
+    }
+
+    private static void assertBudget(String name, long budget, Runnable op, int runs) {
+        long bytes = bytesPerOp(op, runs);
+        assertTrue(name + " allocated " + bytes + " bytes/op, budget is " + budget, bytes <= budget);
+    }
+
+    @Test
+    public void moveAllocatesNothing() {
+        TetrisBoard scratch = new TetrisBoard(board);
+        for(Board.Action act : Board.Action.values())
+            assertBudget("move " + act, 0, () -> {
+                scratch.copyFrom(board);
+                sink = scratch.move(act);
+            });
+    }
+
+    @Test
+    public void dropAllocatesNothing() {
+        Piece p = board.getCurrentPiece();
+        int x = board.getCurrentPiecePosition().x;
+        assertBudget("dropHeight", 0, () -> numberSink = board.dropHeight(p, x));
+
+        FastBoard fast = new FastBoard(board.getWidth(), board.getHeight());
+        fast.load(board);
+        FastBoard scratch = new FastBoard(board.getWidth(), board.getHeight());
+        FastBoard.Shape shape = FastBoard.SHAPES[p.getType().ordinal()][p.getRotationIndex()];
+        assertBudget("FastBoard.drop", 0, () -> {
+            scratch.copyFrom(fast);
+            sink = scratch.drop(shape, x);
+        });
+    }
+
+    @Test
+    public void qTableLookupsAllocateNothing() {
+        QState s = q.encode(board);
+        assertBudget("encode", 0, () -> sink = q.encode(board));
+        assertBudget("heuristicReward", 0, () -> numberSink = s.heuristicReward(board));
+    }
+
+    @Test
+    public void copiesStayWithinBudget() {
+        // one new board: the grid rows plus the small per-board arrays, placed pieces are shared
+        assertBudget("testMove", 2048, () -> sink = board.testMove(Board.Action.LEFT));
+        // one scratch board for every candidate, plus the sort's merge buffer
+        assertBudget("getMaxAction", 2560, () -> sink = q.encode(board).getMaxAction(board), 500);
+    }
+
+    @Test
+    public void paintAllocatesNoPoints() {
+        JTetris tetris = new JTetris();
+        tetris.board = board;
+        tetris.setSize(tetris.getPreferredSize());
+        BufferedImage image = new BufferedImage(tetris.getWidth(), tetris.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        assertBudget("paintComponent", 256, () -> tetris.paintComponent(g));
+        g.dispose();
+    }
+}
@@ -2,6 +2,10 @@ package assignment;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -38,4 +42,92 @@ public class BrainTest {
             for(int pType = 0; pType < 7; pType++)
                 assertEquals(i, q.encode(s.decode(i*7 + pType)).getIdx() / 7);
     }
+
+    @Test
+    public void checkpointRoundTrip() throws Exception {
+        q.trainOneGame();
+        q.trainTable(1);
+        File f = File.createTempFile("qtable", QLearningBrain.CHECKPOINT_EXTENSION);
+        f.deleteOnExit();
+        CheckpointWriter w = new CheckpointWriter(q);
+        assertTrue(w.submit(q, 7, null, f.getPath()));
+        w.close();
+
+        QTable loaded = new QTable(10, 20, 2, 3, 4);
+        assertEquals(7, loaded.loadCheckpoint(f.getPath()));
+        double[] expected = new double[q.numValues()];
+        double[] actual = new double[loaded.numValues()];
+        q.snapshotValues(expected);
+        loaded.snapshotValues(actual);
+        assertArrayEquals(expected, actual, 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingCheckpointDoesntRetrain() throws Exception {
+        File f = File.createTempFile("missing", QLearningBrain.CHECKPOINT_EXTENSION);
+        assertTrue(f.delete());
+        new QLearningBrain(10, 20, 2, 3, 4, f.getPath());
+    }
+
+    @Test
+    public void configRejectsZeroFrequencies() {
+        for(String key : new String[] {"printTableFreq", "trainTableFreq", "recordFreq", "stateWidthShrink", "maxMemorySize"}) {
+            TrainingConfig c = new TrainingConfig();
+            c.set(key, "0");
+            try {
+                c.validate();
+                assertTrue(key + " accepted 0", false);
+            } catch(IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(key));
+            }
+        }
+        new TrainingConfig().validate();
+    }
+
+    @Test
+    public void searchDepthBoundedByZobristSalts() {
+        new AnytimeBrain(new BeamSearchBrain(4, 1, 0), BeamSearchBrain.MAX_DEPTH, 0);
+        try {
+            new AnytimeBrain(new BeamSearchBrain(4, 1, 0), BeamSearchBrain.MAX_DEPTH + 1, 0);
+            assertTrue("deepening past the salts accepted", false);
+        } catch(IllegalArgumentException e) {
+        }
+        try {
+            new BeamSearchBrain(4, BeamSearchBrain.MAX_DEPTH + 1, 0);
+            assertTrue("depth past the salts accepted", false);
+        } catch(IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void failedCheckpointLeavesNoTempFile() throws Exception {
+        File f = File.createTempFile("qtable", QLearningBrain.CHECKPOINT_EXTENSION);
+        f.deleteOnExit();
+        try {
+            CheckpointWriter.writeAtomically(f.getPath(), out -> {
+                out.write(1);
+                throw new IOException("disk full");
+            });
+            assertTrue("write failure swallowed", false);
+        } catch(IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertTrue(!new File(f.getPath() + CheckpointWriter.TEMP_SUFFIX).exists());
+        assertEquals(0, f.length());
+    }
+
+    @Test
+    public void cachedHeuristicActionIsTheHeuristicsChoice() {
+        // actions compare equal by value, as in a loaded table where many are never updated
+        PlacementCache<Integer> cache = new PlacementCache<>(PlacementCache.DEFAULT_CAPACITY);
+        Game game = new Game(10, 20, 4, PieceSource.uniform(5));
+        for(int i = 0; i < 30 && !game.isOver(); i++) {
+            TetrisBoard b = game.getBoard();
+            QState state = q.encode(b);
+            state.loadLine(state.asString().replaceAll("\\S+", "0"));
+            QAction chosen = state.getHeuristicAction(b, cache);
+            assertTrue(chosen == state.getHeuristicAction(b, cache));
+            game.place(chosen.getMoves());
+        }
+    }
 }
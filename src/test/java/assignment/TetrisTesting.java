@@ -2,7 +2,19 @@ package assignment;
 
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.JPanel;
 
 import org.junit.Test;
 
@@ -188,4 +200,409 @@ public class TetrisTesting {
         int dropHeight = env.dropHeight(currentPiece, WIDTH/2);
         assertTrue(dropHeight == 2);
     }
+
+    @Test
+    public void failedDropKeepsCopiedPiece() { //whitebox
+        TetrisBoard env = new TetrisBoard(WIDTH, HEIGHT);
+        env.nextPiece(new TetrisPiece(Piece.PieceType.T), new Point(3, HEIGHT - 4));
+        TetrisBoard copy = new TetrisBoard(WIDTH, HEIGHT);
+        copy.copyFrom(env); // position is the copy's reused Point
+
+        assertTrue(!copy.dropPiece(new TetrisPiece(Piece.PieceType.STICK), WIDTH));
+        assertTrue(copy.getCurrentPiecePosition().equals(new Point(3, HEIGHT - 4)));
+        assertTrue(copy.getCurrentPiece().equals(env.getCurrentPiece()));
+        assertTrue(copy.equals(env));
+
+        // a drop that fits takes the current piece's place
+        assertTrue(copy.dropPiece(new TetrisPiece(Piece.PieceType.STICK), 0));
+        assertTrue(copy.getCurrentPiece() == null && copy.getMaxHeight() == 1);
+    }
+
+    @Test
+    public void fastBoardMatchesTetrisBoard() { //blackbox
+        Random r = new Random(3);
+        for(int game = 0; game < 100; game++) {
+            TetrisBoard env = new TetrisBoard(WIDTH, HEIGHT);
+            FastBoard fast = new FastBoard(WIDTH, HEIGHT);
+            for(int i = 0; i < 60; i++) {
+                Piece.PieceType type = Piece.PieceType.values()[r.nextInt(Piece.PieceType.values().length)];
+                int rotation = r.nextInt(4);
+                int x = r.nextInt(WIDTH + 2) - 2;
+                boolean placed = env.dropPiece(new TetrisPiece(type, rotation), x);
+                assertTrue(placed == fast.drop(FastBoard.SHAPES[type.ordinal()][rotation], x));
+                assertTrue(fast.getMaxHeight() == env.getMaxHeight() && fast.getRowsCleared() == env.getRowsCleared());
+                assertTrue(Math.abs(fast.reward() - BoardHeuristics.reward(env)) < 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void wideFastBoardMatchesTetrisBoard() { //blackbox
+        // rows span several words: random drops cross word boundaries, and a stick in a well clears full rows
+        Random r = new Random(5);
+        for(int width : new int[] { 64, 70, 130 }) {
+            for(int game = 0; game < 20; game++) {
+                TetrisBoard env = new TetrisBoard(width, HEIGHT);
+                FastBoard fast = new FastBoard(width, HEIGHT);
+                for(int i = 0; i < 200; i++) {
+                    Piece.PieceType type = Piece.PieceType.values()[r.nextInt(Piece.PieceType.values().length)];
+                    int rotation = r.nextInt(4);
+                    int x = r.nextInt(width + 2) - 2;
+                    boolean placed = env.dropPiece(new TetrisPiece(type, rotation), x);
+                    assertTrue(placed == fast.drop(FastBoard.SHAPES[type.ordinal()][rotation], x));
+                    assertTrue(fast.getMaxHeight() == env.getMaxHeight() && fast.getRowsCleared() == env.getRowsCleared());
+                    assertTrue(Math.abs(fast.reward() - BoardHeuristics.reward(env)) < 1e-9);
+                }
+            }
+
+            for(int well = 0; well < width; well+=width / 5) {
+                Piece[][] p = new Piece[HEIGHT][width];
+                for(int y = 0; y < 5; y++)
+                    for(int x = 0; x < width; x++)
+                        if(x != well && (y < 4 || x % 3 == 0))
+                            p[y][x] = new TetrisPiece(Piece.PieceType.SQUARE);
+                TetrisBoard env = new TetrisBoard(p);
+                FastBoard fast = new FastBoard(width, HEIGHT);
+                fast.load(env);
+                // vertical stick, its blocks are in column 1 of its box
+                assertTrue(env.dropPiece(new TetrisPiece(Piece.PieceType.STICK, 3), well - 1));
+                assertTrue(fast.drop(FastBoard.SHAPES[Piece.PieceType.STICK.ordinal()][3], well - 1));
+                assertTrue(env.getRowsCleared() == 4 && fast.getRowsCleared() == 4);
+                assertTrue(fast.getMaxHeight() == env.getMaxHeight() && env.getMaxHeight() == 1);
+                assertTrue(Math.abs(fast.reward() - BoardHeuristics.reward(env)) < 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void listenerEventsTest() { //whitebox
+        StringBuilder events = new StringBuilder();
+        BoardListener listener = new BoardListener() {
+            public void pieceLocked(TetrisBoard board, Piece piece, Point position) {
+                events.append("locked ").append(piece.getType()).append(' ').append(position.x).append(',').append(position.y).append(';');
+            }
+            public void rowsCleared(TetrisBoard board, int[] rows, int count) {
+                events.append("cleared");
+                for(int i = 0; i < count; i++)
+                    events.append(' ').append(rows[i]);
+                events.append(';');
+            }
+            public void pieceSpawned(TetrisBoard board, Piece piece, Point position) {
+                events.append("spawned ").append(piece.getType()).append(';');
+            }
+            public void toppedOut(TetrisBoard board, Piece piece, Point position) {
+                events.append("topped out;");
+            }
+        };
+
+        Piece[][] p = new Piece[HEIGHT][WIDTH];
+        for(int y = 0; y < 4; y++)
+            for(int x = 0; x < WIDTH; x++)
+                if(x != WIDTH/2)
+                    p[y][x] = new TetrisPiece(Piece.PieceType.SQUARE);
+        TetrisBoard env = new TetrisBoard(p);
+        env.addListener(listener);
+        TetrisBoard copy = new TetrisBoard(env);
+
+        env.nextPiece(new TetrisPiece(Piece.PieceType.STICK, 3), new Point((WIDTH-1)/2, HEIGHT - 4));
+        env.move(Board.Action.DROP);
+        assertTrue(events.toString().equals("spawned STICK;locked STICK 4,0;cleared 0 1 2 3;"));
+
+        events.setLength(0);
+        env.nextPiece(new TetrisPiece(Piece.PieceType.SQUARE), new Point(0, 0));
+        try {
+            env.nextPiece(new TetrisPiece(Piece.PieceType.SQUARE), new Point(WIDTH, HEIGHT));
+        } catch(IllegalArgumentException e) { }
+        assertTrue(events.toString().equals("spawned SQUARE;topped out;"));
+
+        // copies don't carry listeners, and removed listeners hear nothing
+        events.setLength(0);
+        copy.nextPiece(new TetrisPiece(Piece.PieceType.T), new Point(0, HEIGHT - 4));
+        copy.move(Board.Action.DROP);
+        env.removeListener(listener);
+        env.move(Board.Action.DROP);
+        assertTrue(events.length() == 0);
+    }
+
+    /**
+     * Replays log, false if it ends in a different state or can't be replayed
+     */
+    private static boolean replayMatches(GameReplayer.Log log) {
+        try {
+            return GameReplayer.replay(log).stateHash() == log.hash;
+        } catch(IllegalStateException e) { // a piece spawned out of step
+            return false;
+        }
+    }
+
+    @Test
+    public void recordedGameReplays() throws IOException { //blackbox
+        Game game = new Game(WIDTH, HEIGHT, 4, PieceSource.uniform(11));
+        GameRecorder recorder = new GameRecorder(WIDTH, HEIGHT, 4, 11);
+        game.record(recorder);
+        Brain brain = new LameBrain();
+        while(!game.isOver() && game.getPiecesPlaced() < 60)
+            game.step(brain.nextMove(game.getBoard()));
+        recorder.end(game);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.write(bytes);
+        GameReplayer.Log log = GameReplayer.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(log.width == WIDTH && log.height == HEIGHT && log.topSpace == 4 && log.seed == 11);
+        assertTrue(log.hash == game.stateHash() && log.piecesPlaced == game.getPiecesPlaced());
+        assertTrue(replayMatches(log));
+
+        // flip one move in the middle of the game: the replay has to notice
+        int flip = log.numTokens / 2;
+        while(log.tokens[flip] != GameRecorder.FIRST_ACTION + Board.Action.DROP.ordinal())
+            flip++;
+        log.tokens[flip] = (byte) (GameRecorder.FIRST_ACTION + Board.Action.NOTHING.ordinal());
+        assertTrue(!replayMatches(log));
+    }
+
+    /**
+     * A fresh source of every kind, all seeded with seed
+     */
+    private static PieceSource[] sources(long seed) {
+        return new PieceSource[] { PieceSource.uniform(seed), PieceSource.bag(seed), PieceSource.history(seed),
+            PieceSource.pregenerated(PieceSource.bag(seed), 100) };
+    }
+
+    private static int[] deal(PieceSource source, int n) {
+        int[] types = new int[n];
+        for(int i = 0; i < n; i++)
+            types[i] = source.nextType();
+        return types;
+    }
+
+    @Test
+    public void reseedReplaysPieces() { //blackbox
+        PieceSource[] sources = sources(8);
+        PieceSource[] fresh = sources(8);
+        for(int i = 0; i < sources.length; i++) {
+            int[] first = deal(sources[i], 300);
+            assertTrue(Arrays.equals(first, deal(fresh[i], 300)));
+            sources[i].peek(5);
+            sources[i].reseed(8);
+            assertTrue(Arrays.equals(first, deal(sources[i], 300)));
+        }
+    }
+
+    @Test
+    public void bagDealsEveryPieceOnce() { //blackbox
+        PieceSource bag = PieceSource.bag(2);
+        for(int b = 0; b < 50; b++) {
+            boolean[] seen = new boolean[PieceSource.NUM_TYPES];
+            for(int i = 0; i < PieceSource.NUM_TYPES; i++) {
+                int type = bag.nextType();
+                assertTrue(!seen[type]);
+                seen[type] = true;
+            }
+        }
+    }
+
+    @Test
+    public void peekDoesntChangeDeals() { //blackbox
+        PieceSource[] peeked = sources(13);
+        PieceSource[] plain = sources(13);
+        Random r = new Random(1);
+        for(int i = 0; i < peeked.length; i++) {
+            for(int n = 0; n < 300; n++) {
+                int ahead = r.nextInt(12);
+                Piece preview = peeked[i].peek(ahead);
+                assertTrue(peeked[i].peek(ahead) == preview);
+                if(ahead == 0)
+                    assertTrue(peeked[i].next() == preview && plain[i].next() == preview);
+                else
+                    assertTrue(peeked[i].nextType() == plain[i].nextType());
+            }
+        }
+    }
+
+    @Test
+    public void pregeneratedDealsSourceSequence() { //blackbox
+        // past length the source deals directly, and a reseed refills from the new seed
+        PieceSource pregenerated = PieceSource.pregenerated(PieceSource.history(21), 150);
+        assertTrue(Arrays.equals(deal(pregenerated, 400), deal(PieceSource.history(21), 400)));
+        pregenerated.reseed(22);
+        assertTrue(Arrays.equals(deal(pregenerated, 400), deal(PieceSource.history(22), 400)));
+    }
+
+    @Test
+    public void pregeneratedDrawsBeforeTheGame() { //whitebox
+        int[] draws = new int[1];
+        PieceSource counted = new PieceSource(new Random(5)) {
+            @Override
+            protected int draw() {
+                draws[0]++;
+                return random.nextInt(NUM_TYPES);
+            }
+        };
+        PieceSource pregenerated = PieceSource.pregenerated(counted, 50);
+        pregenerated.reseed(6);
+        int drawnBeforePlay = draws[0];
+        assertTrue(drawnBeforePlay >= 50);
+        deal(pregenerated, 50);
+        assertTrue(draws[0] == drawnBeforePlay);
+        deal(pregenerated, 1);
+        assertTrue(draws[0] == drawnBeforePlay + 1);
+    }
+
+    /**
+     * Source dealing n pieces of one type
+     */
+    private static PieceSource only(Piece.PieceType type, int n) {
+        byte[] types = new byte[n];
+        Arrays.fill(types, (byte) PieceSource.indexOf(new TetrisPiece(type)));
+        return PieceSource.sequence(types, n);
+    }
+
+    @Test
+    public void gameSpawnsAtTopCenter() { //whitebox
+        Game game = new Game(WIDTH, HEIGHT, 4, only(Piece.PieceType.T, 10));
+        TetrisBoard b = game.getBoard();
+        assertTrue(b.getHeight() == HEIGHT + 4 && game.getPiecesSpawned() == 1 && game.getPiecesPlaced() == 0);
+        assertTrue(b.getCurrentPiece().getType() == Piece.PieceType.T);
+        assertTrue(b.getCurrentPiecePosition().equals(new Point(WIDTH / 2 - 3 / 2, HEIGHT)));
+
+        assertTrue(game.step(Board.Action.DROP) == Board.Result.PLACE);
+        assertTrue(game.getPiecesSpawned() == 2 && game.getPiecesPlaced() == 1);
+        assertTrue(b.getCurrentPiecePosition().equals(new Point(WIDTH / 2 - 3 / 2, HEIGHT)));
+    }
+
+    @Test
+    public void gameEndsWhenLockAboveHeight() { //whitebox
+        // squares stacked in the middle: the 10th reaches exactly height, the 11th locks above it
+        Game game = new Game(WIDTH, HEIGHT, 4, only(Piece.PieceType.SQUARE, 20));
+        for(int i = 0; i < HEIGHT / 2; i++)
+            game.step(Board.Action.DROP);
+        assertTrue(!game.isOver() && game.getBoard().getMaxHeight() == HEIGHT);
+        assertTrue(game.step(Board.Action.DROP) == Board.Result.PLACE);
+        assertTrue(game.isOver());
+        assertTrue(game.getPiecesPlaced() == HEIGHT / 2 + 1 && game.getPiecesSpawned() == HEIGHT / 2 + 1); // nothing spawns after
+        assertTrue(game.step(Board.Action.DROP) == Board.Result.NO_PIECE && !game.place(Arrays.asList(Board.Action.DROP)));
+    }
+
+    @Test
+    public void gamePlaceDropsAfterBadMoves() { //whitebox
+        Game game = new Game(WIDTH, HEIGHT, 4, only(Piece.PieceType.SQUARE, 10));
+        // moves that don't lock get a DROP added
+        assertTrue(game.place(Arrays.asList(Board.Action.RIGHT)));
+        assertTrue(game.getPiecesPlaced() == 1 && game.getBoard().getColumnHeight(WIDTH / 2) == 2);
+
+        // walking off the wall is reported, but the piece still lands where the moves left it
+        Board.Action[] left = new Board.Action[WIDTH];
+        Arrays.fill(left, Board.Action.LEFT);
+        assertTrue(!game.place(Arrays.asList(left)));
+        assertTrue(game.getPiecesPlaced() == 2 && game.getPiecesSpawned() == 3);
+        assertTrue(game.getBoard().getColumnHeight(0) == 2 && game.getBoard().getColumnHeight(1) == 2);
+
+        // moves after the piece locks aren't played on the next one
+        assertTrue(game.place(Arrays.asList(Board.Action.DROP, Board.Action.LEFT, Board.Action.LEFT)));
+        assertTrue(game.getPiecesPlaced() == 3);
+        assertTrue(game.getBoard().getCurrentPiecePosition().equals(new Point(WIDTH / 2 - 1, HEIGHT)));
+    }
+
+    @Test
+    public void gameResetStartsOver() { //blackbox
+        PieceSource pieces = PieceSource.bag(6);
+        Game game = new Game(WIDTH, HEIGHT, 4, pieces);
+        long start = game.stateHash();
+        Brain brain = new LameBrain();
+        while(game.getPiecesPlaced() < 20)
+            game.step(brain.nextMove(game.getBoard()));
+        assertTrue(game.getPiecesSpawned() == 21);
+
+        pieces.reseed(6);
+        game.reset();
+        assertTrue(game.getPiecesSpawned() == 1 && game.getPiecesPlaced() == 0 && game.getLinesCleared() == 0);
+        assertTrue(!game.isOver() && game.getBoard().getMaxHeight() == 0);
+        assertTrue(game.stateHash() == start);
+    }
+
+    @Test
+    public void rendererShowsStepsBetweenDirtyAreaAndPaint() { //whitebox
+        JPanel panel = new JPanel();
+        panel.setSize(WIDTH * 12 + 2, (HEIGHT + 4) * 12 + 2);
+        TetrisBoard b = new TetrisBoard(WIDTH, HEIGHT + 4);
+        BoardRenderer renderer = new BoardRenderer(panel, 4);
+        renderer.setBoard(b);
+        BufferedImage screen = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        paintClipped(renderer, screen, renderer.dirtyArea());
+
+        Random random = new Random(7);
+        Board.Action[] acts = { Board.Action.LEFT, Board.Action.RIGHT, Board.Action.CLOCKWISE };
+        Piece.PieceType[] types = Piece.PieceType.values();
+        while(b.getMaxHeight() < HEIGHT - 4) {
+            b.nextPiece(new TetrisPiece(types[random.nextInt(types.length)]), new Point(WIDTH / 2 - 1, HEIGHT));
+            for(int i = random.nextInt(6); i > 0; i--) {
+                b.move(acts[random.nextInt(acts.length)]);
+                frame(renderer, screen);
+            }
+            Rectangle area = renderer.dirtyArea();
+            b.move(Board.Action.DROP); // a game thread locks the piece before the scheduled paint runs
+            paintClipped(renderer, screen, area);
+            frame(renderer, screen); // next frame
+
+            BoardRenderer fresh = new BoardRenderer(panel, 4);
+            fresh.setBoard(b);
+            BufferedImage expected = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+            paintClipped(fresh, expected, null);
+            fresh.setBoard(null);
+            for(int y = 0; y < screen.getHeight(); y++)
+                for(int x = 0; x < screen.getWidth(); x++)
+                    assertTrue("pixel " + x + "," + y, screen.getRGB(x, y) == expected.getRGB(x, y));
+        }
+    }
+
+    @Test
+    public void finesseKeepsPlacementsAndNeverLengthens() { //blackbox
+        Random random = new Random(3);
+        Board.Action[] acts = { Board.Action.LEFT, Board.Action.RIGHT, Board.Action.CLOCKWISE, Board.Action.COUNTERCLOCKWISE, Board.Action.DOWN };
+        int shortened = 0;
+        for(int g = 0; g < 20; g++) {
+            Game game = new Game(WIDTH, HEIGHT, 4, PieceSource.uniform(g));
+            while(!game.isOver()) {
+                TetrisBoard b = game.getBoard();
+                if(random.nextInt(4) == 0)
+                    b.move(Board.Action.DOWN); // off spawn, so only the board search applies
+                List<Board.Action> moves = new ArrayList<>();
+                for(int i = random.nextInt(9); i > 0; i--)
+                    moves.add(acts[random.nextInt(random.nextInt(8) == 0 ? acts.length : acts.length - 1)]);
+                moves.add(Board.Action.DROP);
+
+                List<Board.Action> shorter = Finesse.forBoard(b).shorten(b, moves);
+                assertTrue(shorter.size() <= moves.size());
+                if(shorter.size() < moves.size())
+                    shortened++;
+                TetrisBoard planned = new TetrisBoard(b);
+                TetrisBoard played = new TetrisBoard(b);
+                for(Board.Action act : moves)
+                    planned.move(act);
+                for(Board.Action act : shorter)
+                    played.move(act);
+                // same blocks everywhere; equals would also compare which rotation placed each one
+                for(int y = 0; y < b.getHeight(); y++)
+                    for(int x = 0; x < b.getWidth(); x++)
+                        assertTrue(moves + " -> " + shorter, planned.getGrid(x, y) == played.getGrid(x, y));
+                game.place(moves);
+            }
+        }
+        assertTrue(shortened > 0);
+    }
+
+    // what JTetris.frame does: repaint the dirty area, if any
+    private static void frame(BoardRenderer renderer, BufferedImage screen) {
+        Rectangle area = renderer.dirtyArea();
+        if(area != null)
+            paintClipped(renderer, screen, area);
+    }
+
+    private static void paintClipped(BoardRenderer renderer, BufferedImage image, Rectangle clip) {
+        Graphics2D g = image.createGraphics();
+        if(clip != null)
+            g.setClip(clip);
+        renderer.paint(g);
+        g.dispose();
+    }
 }